@@ -0,0 +1,128 @@
+import java.util.*;
+
+// Next hop and cost from one router to one other router, found by Dijkstra from both ends at once so that a query
+// settles two balls of about half the route's length around the routers instead of the whole component.
+// The forward search from the source labels routers (distance, hops, first hop) as the full SPF does, the backward
+// search from the destination labels them (distance, hops). Every link between the two searches joins them into a
+// route, and the best of those routes by ShortestPathEngine.better() is the row the routing table has.
+// The searches stop once the two smallest queued distances add up to more than the best route, not just as much: the
+// routes as long as the best one but with fewer hops or an earlier next hop are still found that way.
+// Both queues settle by (distance, hops) like the full SPF, so a settled router's label is final even over zero-weight
+// links, and every route that can still win has a link from a router the forward search settled to one the backward
+// search settled.
+public class BidirectionalDijkstra
+{
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Row {destination, next hop, distance} of the route from router to destination, or null if there is none.
+    public String[] route(String router, String destination, CsrGraph graph)
+    {
+        int source = graph.id(router);
+        int target = graph.id(destination);
+        if (source == -1 || target == -1 || source == target || !graph.components().connected(source, target))
+        {
+            return null;
+        }
+
+        int n = graph.nodeCount();
+        int[] forward = new int[n];
+        int[] forwardHops = new int[n];
+        int[] firstHop = new int[n];
+        boolean[] forwardSettled = new boolean[n];
+        int[] backward = new int[n];
+        int[] backwardHops = new int[n];
+        boolean[] backwardSettled = new boolean[n];
+        Arrays.fill(forward, UNREACHABLE);
+        Arrays.fill(backward, UNREACHABLE);
+        IndexedDaryHeap forwardQueue = new IndexedDaryHeap(4, n, graph.names());
+        IndexedDaryHeap backwardQueue = new IndexedDaryHeap(4, n, graph.names());
+        forward[source] = 0;
+        forwardQueue.insert(source, 0);
+        backward[target] = 0;
+        backwardQueue.insert(target, 0);
+
+        // best route found so far
+        int bestDistance = UNREACHABLE;
+        int bestHops = 0;
+        int bestFirstHop = -1;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty())
+        {
+            long bound = (long) forward[forwardQueue.peek()] + backward[backwardQueue.peek()];
+            if (bestDistance != UNREACHABLE && bound > bestDistance)
+            {
+                break;
+            }
+            // grow the search with the smaller queue
+            if (forwardQueue.size() <= backwardQueue.size())
+            {
+                int u = forwardQueue.poll();
+                forwardSettled[u] = true;
+                for (int i = 0, degree = graph.degree(u); i < degree; i++)
+                {
+                    int v = graph.target(u, i);
+                    int d = forward[u] + graph.weight(u, i);
+                    int h = forwardHops[u] + 1;
+                    int f = u == source ? v : firstHop[u];
+                    // the route that goes on from v the way the backward search reached it
+                    if (backward[v] != UNREACHABLE && (bestDistance == UNREACHABLE
+                        || ShortestPathEngine.better(d + backward[v], h + backwardHops[v], graph.name(f), bestDistance, bestHops, graph.name(bestFirstHop))))
+                    {
+                        bestDistance = d + backward[v];
+                        bestHops = h + backwardHops[v];
+                        bestFirstHop = f;
+                    }
+                    if (forwardSettled[v])
+                    {
+                        continue;
+                    }
+                    if (forward[v] == UNREACHABLE || ShortestPathEngine.better(d, h, graph.name(f), forward[v], forwardHops[v], graph.name(firstHop[v])))
+                    {
+                        boolean moves = d < forward[v] || h < forwardHops[v];
+                        forward[v] = d;
+                        forwardHops[v] = h;
+                        firstHop[v] = f;
+                        if (moves)
+                        {
+                            forwardQueue.insertOrDecrease(v, d, h);
+                        }
+                    }
+                }
+            }
+            else
+            {
+                int v = backwardQueue.poll();
+                backwardSettled[v] = true;
+                for (int i = 0, degree = graph.degree(v); i < degree; i++)
+                {
+                    int u = graph.target(v, i);
+                    int d = backward[v] + graph.weight(v, i);
+                    int h = backwardHops[v] + 1;
+                    // the route that comes to u the way the forward search reached it
+                    if (forward[u] != UNREACHABLE)
+                    {
+                        int f = u == source ? v : firstHop[u];
+                        if (bestDistance == UNREACHABLE
+                            || ShortestPathEngine.better(forward[u] + d, forwardHops[u] + h, graph.name(f), bestDistance, bestHops, graph.name(bestFirstHop)))
+                        {
+                            bestDistance = forward[u] + d;
+                            bestHops = forwardHops[u] + h;
+                            bestFirstHop = f;
+                        }
+                    }
+                    if (backwardSettled[u])
+                    {
+                        continue;
+                    }
+                    if (d < backward[u] || (d == backward[u] && h < backwardHops[u]))
+                    {
+                        backward[u] = d;
+                        backwardHops[u] = h;
+                        backwardQueue.insertOrDecrease(u, d, h);
+                    }
+                }
+            }
+        }
+        return new String[] {destination, graph.name(bestFirstHop), String.valueOf(bestDistance)};
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.*;
+
+// Dial's bucket queue for integer distances. While routers are settled in distance order, every waiting router is at
+// most the largest link weight C past the current distance, so C + 1 buckets used round robin hold one distance each.
+// push() appends to a bucket in O(1) and poll() moves forward to the next non-empty bucket, O(n + m + D) for a whole
+// SPF run with D the largest distance. A router whose distance drops is appended again and its old entry is skipped.
+// The routers of the current distance are handed out by hops and then in name order. They are sorted by their hops and
+// their rank in the graph's NameOrder packed into one long, a primitive sort instead of string comparisons, which keeps
+// the settle order of every SpfQueue.
+public class BucketQueue implements SpfQueue
+{
+    // Above this many buckets the round robin array costs more than it saves
+    public static final int MAX_BUCKETS = 1 << 20;
+
+    private final int[] rank;
+    private final int[] byRank;
+    private final int[][] buckets;
+    private final int[] bucketSize;
+    // router -> distance and hops of its latest entry, distance -1 when it was never queued
+    private final int[] queued;
+    private final int[] queuedHops;
+    private final boolean[] polled;
+    // routers queued since the last clear(), the ones whose queued and polled entries are set
+    private final int[] touched;
+    private int touchedCount;
+    private int waiting;
+    private int stale;
+
+    // the distance being settled, with the keys of its routers sorted in ready[next .. readySize)
+    private int current;
+    private long[] ready = new long[16];
+    private int next;
+    private int readySize;
+    // keys of routers that reached the current distance over zero-weight links after it was sorted, as a binary heap
+    private long[] late = new long[16];
+    private int lateSize;
+
+    public BucketQueue(int maxWeight, int capacity, CsrGraph.NameOrder order)
+    {
+        if (maxWeight >= MAX_BUCKETS)
+        {
+            throw new IllegalArgumentException("Link weight " + maxWeight + " needs too many buckets, at most " + (MAX_BUCKETS - 1) + " is supported");
+        }
+        this.rank = order.rank;
+        this.byRank = order.routers;
+        this.buckets = new int[maxWeight + 1][];
+        this.bucketSize = new int[maxWeight + 1];
+        this.queued = new int[capacity];
+        this.queuedHops = new int[capacity];
+        this.polled = new boolean[capacity];
+        this.touched = new int[capacity];
+        Arrays.fill(queued, -1);
+    }
+
+    // Whether buckets are cheaper than a heap for this graph. A run visits every distance up to the furthest router
+    // once, and with C above the number of routers the empty buckets it steps over cost more than the log n of a heap.
+    public static boolean economical(int maxWeight, int routers)
+    {
+        return maxWeight < MAX_BUCKETS && maxWeight <= Math.max(1024, routers);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return waiting == 0;
+    }
+
+    @Override
+    public void push(int router, int distance, int hops)
+    {
+        if (queued[router] == -1)
+        {
+            waiting++;
+            touched[touchedCount++] = router;
+        }
+        queued[router] = distance;
+        queuedHops[router] = hops;
+        if (distance == current)
+        {
+            // a zero-weight link from the router being settled: the distance is already being handed out
+            addLate(key(router));
+            return;
+        }
+        int b = distance % buckets.length;
+        if (buckets[b] == null)
+        {
+            buckets[b] = new int[4];
+        }
+        else if (bucketSize[b] == buckets[b].length)
+        {
+            buckets[b] = Arrays.copyOf(buckets[b], bucketSize[b] * 2);
+        }
+        buckets[b][bucketSize[b]++] = router;
+    }
+
+    @Override
+    public int poll()
+    {
+        while (true)
+        {
+            while (next < readySize || lateSize > 0)
+            {
+                long r;
+                if (lateSize == 0 || (next < readySize && ready[next] < late[0]))
+                {
+                    r = ready[next++];
+                }
+                else
+                {
+                    r = pollLate();
+                }
+                int router = byRank[(int) r];
+                if (!polled[router] && queued[router] == current)
+                {
+                    polled[router] = true;
+                    waiting--;
+                    return router;
+                }
+                stale++;
+            }
+            // Move to the next distance that has a bucket entry. Every live entry is within C of the current
+            // distance, so one bucket only ever holds entries of one distance.
+            int b;
+            do
+            {
+                current++;
+                b = current % buckets.length;
+            }
+            while (bucketSize[b] == 0);
+            int[] bucket = buckets[b];
+            if (ready.length < bucketSize[b])
+            {
+                ready = new long[Math.max(bucketSize[b], ready.length * 2)];
+            }
+            readySize = 0;
+            next = 0;
+            for (int i = 0; i < bucketSize[b]; i++)
+            {
+                int router = bucket[i];
+                if (!polled[router] && queued[router] == current)
+                {
+                    ready[readySize++] = key(router);
+                }
+                else
+                {
+                    stale++;
+                }
+            }
+            bucketSize[b] = 0;
+            Arrays.sort(ready, 0, readySize);
+        }
+    }
+
+    // The buckets hold at most C + 1 distances, which economical() keeps within the number of routers
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < touchedCount; i++)
+        {
+            queued[touched[i]] = -1;
+            polled[touched[i]] = false;
+        }
+        touchedCount = 0;
+        Arrays.fill(bucketSize, 0);
+        waiting = 0;
+        current = 0;
+        next = 0;
+        readySize = 0;
+        lateSize = 0;
+        stale = 0;
+    }
+
+    @Override
+    public int stalePops()
+    {
+        return stale;
+    }
+
+    // Hops in the high half and the rank of the router in the low half, so that keys sort in the settle order
+    private long key(int router)
+    {
+        return (long) queuedHops[router] << 32 | rank[router];
+    }
+
+    private void addLate(long r)
+    {
+        if (lateSize == late.length)
+        {
+            late = Arrays.copyOf(late, lateSize * 2);
+        }
+        int slot = lateSize++;
+        while (slot > 0)
+        {
+            int parent = (slot - 1) / 2;
+            if (late[parent] <= r)
+            {
+                break;
+            }
+            late[slot] = late[parent];
+            slot = parent;
+        }
+        late[slot] = r;
+    }
+
+    private long pollLate()
+    {
+        long top = late[0];
+        long last = late[--lateSize];
+        int slot = 0;
+        while (true)
+        {
+            int child = slot * 2 + 1;
+            if (child >= lateSize)
+            {
+                break;
+            }
+            if (child + 1 < lateSize && late[child + 1] < late[child])
+            {
+                child++;
+            }
+            if (last <= late[child])
+            {
+                break;
+            }
+            late[slot] = late[child];
+            slot = child;
+        }
+        late[slot] = last;
+        return top;
+    }
+}
@@ -0,0 +1,188 @@
+import java.util.*;
+
+// Connected components of the topology, kept up to date as links come and go.
+// Every router points straight at the root of its component, and the members of each component are chained into a
+// circular list through next[], so a component can be listed in time proportional to its size.
+//   - a new link between two components is a union: the smaller component is relabelled to the root of the larger
+//     one and the two circular lists are spliced together, so a router is relabelled O(log n) times in total.
+//   - a removed link can split its component, so the component is searched from one endpoint. If the other endpoint
+//     is not reached, the routers found and the routers left over become two components.
+// Finding a component only reads root[], so a frozen copy can be shared by any number of threads.
+public class ComponentIndex
+{
+    // router -> root of its component
+    private int[] root;
+    // router -> next member of the same component, the last member leads back to the first
+    private int[] next;
+    // root -> number of routers in the component
+    private int[] size;
+    private int components;
+
+    // Search workspace for removals, reused between calls
+    private int[] stamp;
+    private int currentStamp;
+    private int[] queue;
+
+    public ComponentIndex(int capacity)
+    {
+        root = new int[capacity];
+        next = new int[capacity];
+        size = new int[capacity];
+    }
+
+    // Copy of another index, sized for the given number of routers
+    public ComponentIndex(ComponentIndex other, int capacity)
+    {
+        root = Arrays.copyOf(other.root, capacity);
+        next = Arrays.copyOf(other.next, capacity);
+        size = Arrays.copyOf(other.size, capacity);
+        components = other.components;
+    }
+
+    // A new router is a component on its own.
+    public void addNode(int id)
+    {
+        if (id >= root.length)
+        {
+            int capacity = Math.max(id + 1, root.length * 2);
+            root = Arrays.copyOf(root, capacity);
+            next = Arrays.copyOf(next, capacity);
+            size = Arrays.copyOf(size, capacity);
+        }
+        root[id] = id;
+        next[id] = id;
+        size[id] = 1;
+        components++;
+    }
+
+    public int root(int u)
+    {
+        return root[u];
+    }
+
+    // Next member of the component of u, going round the whole component leads back to u.
+    public int next(int u)
+    {
+        return next[u];
+    }
+
+    // Number of routers in the component of u
+    public int size(int u)
+    {
+        return size[root[u]];
+    }
+
+    public int components()
+    {
+        return components;
+    }
+
+    public boolean connected(int u, int v)
+    {
+        return root[u] == root[v];
+    }
+
+    // The link u-v was added.
+    public void union(int u, int v)
+    {
+        int small = root[u];
+        int large = root[v];
+        if (small == large)
+        {
+            return;
+        }
+        if (size[small] > size[large])
+        {
+            int swap = small;
+            small = large;
+            large = swap;
+        }
+        int w = small;
+        do
+        {
+            root[w] = large;
+            w = next[w];
+        }
+        while (w != small);
+        // Swapping the successors of one member of each circle joins the two circles into one.
+        int swap = next[small];
+        next[small] = next[large];
+        next[large] = swap;
+        size[large] += size[small];
+        size[small] = 0;
+        components--;
+    }
+
+    // The link u-v was removed from the graph, which no longer has it.
+    public void linkRemoved(CsrGraph graph, int u, int v)
+    {
+        if (u == v || root[u] != root[v])
+        {
+            return;
+        }
+        int oldRoot = root[u];
+        if (stamp == null || stamp.length < root.length)
+        {
+            stamp = new int[root.length];
+            queue = new int[root.length];
+            currentStamp = 0;
+        }
+        currentStamp++;
+        // Search from u, stopping as soon as v turns up since then the component is still connected.
+        int found = 0;
+        queue[found++] = u;
+        stamp[u] = currentStamp;
+        for (int k = 0; k < found; k++)
+        {
+            int a = queue[k];
+            for (int i = 0, degree = graph.degree(a); i < degree; i++)
+            {
+                int b = graph.target(a, i);
+                if (b == v)
+                {
+                    return;
+                }
+                if (stamp[b] != currentStamp)
+                {
+                    stamp[b] = currentStamp;
+                    queue[found++] = b;
+                }
+            }
+        }
+        // The routers left over are the component of v. Chain them up before the old circle is overwritten.
+        int first = -1;
+        int last = -1;
+        int left = 0;
+        int w = oldRoot;
+        do
+        {
+            int following = next[w];
+            if (stamp[w] != currentStamp)
+            {
+                root[w] = v;
+                if (first == -1)
+                {
+                    first = w;
+                }
+                else
+                {
+                    next[last] = w;
+                }
+                last = w;
+                left++;
+            }
+            w = following;
+        }
+        while (w != oldRoot);
+        next[last] = first;
+        size[oldRoot] = 0;
+        size[v] = left;
+        for (int k = 0; k < found; k++)
+        {
+            root[queue[k]] = u;
+            next[queue[k]] = queue[(k + 1) % found];
+        }
+        size[u] = found;
+        components++;
+    }
+}
@@ -0,0 +1,674 @@
+import java.util.*;
+
+// Contraction hierarchy over a snapshot of the topology, for route queries that settle a few hundred routers instead
+// of a component.
+// Routers are contracted one by one, least important first: a contracted router leaves the graph, and every route of
+// two links through it that no other route (a witness) is as short as gets a shortcut link between its two ends. The
+// order the routers were contracted in is their rank, and every link or shortcut is stored at its lower ranked end as
+// an upward arc. Any shortest route then has an equally short form that only goes up in rank and then only down, so a
+// query searches upwards from both ends and meets at the top.
+// Links are weighted (weight, 1) in one long, weight in the high half and hops in the low half, so the distances the
+// hierarchy gives are (distance, hops) and its shortest routes are the least-hop ones among the shortest, like the
+// routing table's.
+// Routers left when contracting gets too dear are the core. They all rank above the others, and a core router has an
+// upward arc to each of its core neighbours, so a query runs plain Dijkstra between them.
+// A hierarchy is immutable once built. The searches of a query need workspace, which lives in a Query.
+public class ContractionHierarchy
+{
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    // A witness search gives up after this many routers, or routes of this many links, and the shortcut is added,
+    // which is never wrong, only bigger
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+    private static final int WITNESS_HOP_LIMIT = 4;
+    // Contraction stops once the cheapest router left would add this many more links than it takes away, or has this
+    // many links. Graphs without much of a hierarchy, such as random ones, end in a dense core where every router adds
+    // shortcuts between most pairs of its neighbours, so the routers still left are kept as the core instead.
+    private static final int CORE_EDGE_DIFFERENCE = 16;
+    private static final int CORE_DEGREE = 32;
+
+    private final int nodeCount;
+    private final int[] rank;
+    // upward arcs of router u: upTargets[upOffsets[u] .. upOffsets[u + 1]) with the matching keys
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final long[] upKeys;
+    private final int shortcuts;
+    private final int coreSize;
+    private final long buildNanos;
+
+    private ContractionHierarchy(int nodeCount, int[] rank, int[] upOffsets, int[] upTargets, long[] upKeys, int shortcuts, int coreSize, long buildNanos)
+    {
+        this.nodeCount = nodeCount;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upKeys = upKeys;
+        this.shortcuts = shortcuts;
+        this.coreSize = coreSize;
+        this.buildNanos = buildNanos;
+    }
+
+    // The link weight as a key: weight in the high half and one hop in the low half
+    public static long key(int weight)
+    {
+        return ((long) weight << 32) + 1;
+    }
+
+    public static int distance(long key)
+    {
+        return (int) (key >>> 32);
+    }
+
+    // Routers the hierarchy covers, [0, nodeCount()) by id
+    public int nodeCount()
+    {
+        return nodeCount;
+    }
+
+    // Place of the router in the contraction order, 0 for the first contracted
+    public int rank(int u)
+    {
+        return rank[u];
+    }
+
+    public int shortcuts()
+    {
+        return shortcuts;
+    }
+
+    // Routers left uncontracted at the top
+    public int coreSize()
+    {
+        return coreSize;
+    }
+
+    public long buildNanos()
+    {
+        return buildNanos;
+    }
+
+    // Bytes held by the hierarchy, not counting the graph it was built from or the workspace of queries
+    public long memoryBytes()
+    {
+        return 4L * rank.length + 4L * upOffsets.length + 4L * upTargets.length + 8L * upKeys.length;
+    }
+
+    public static ContractionHierarchy build(CsrGraph graph)
+    {
+        long start = System.nanoTime();
+        Builder builder = new Builder(graph);
+        builder.contractAll();
+        return builder.finish(System.nanoTime() - start);
+    }
+
+    // Contraction state: the graph that is left, as growable adjacency lists, and a Dijkstra for witness searches
+    private static final class Builder
+    {
+        private final CsrGraph graph;
+        private final int n;
+        private final int[][] adjacent;
+        private final long[][] adjacentKeys;
+        private final int[] degree;
+        private final int[] contractedNeighbours;
+        private final int[] rank;
+        // upward arcs of every contracted router, kept as it is contracted
+        private final int[][] up;
+        private final long[][] upKeys;
+        private int shortcuts;
+        private int coreSize;
+
+        // witness search workspace, reset through the touched list
+        private final long[] distance;
+        private final int[] hops;
+        private final int[] touched;
+        private int touchedCount;
+        private final LongHeap heap;
+        // targets of the current witness search are marked with its number
+        private final int[] target;
+        private int searchNumber;
+        // shortcuts the router of the last witness searches needs: pendingFrom[i] - pendingTo[i] with pendingKeys[i]
+        private int[] pendingFrom = new int[16];
+        private int[] pendingTo = new int[16];
+        private long[] pendingKeys = new long[16];
+        private int pendingCount;
+
+        Builder(CsrGraph graph)
+        {
+            this.graph = graph;
+            this.n = graph.nodeCount();
+            adjacent = new int[n][];
+            adjacentKeys = new long[n][];
+            degree = new int[n];
+            contractedNeighbours = new int[n];
+            rank = new int[n];
+            up = new int[n][];
+            upKeys = new long[n][];
+            distance = new long[n];
+            hops = new int[n];
+            touched = new int[n];
+            heap = new LongHeap(n);
+            target = new int[n];
+            Arrays.fill(distance, UNREACHABLE);
+            for (int u = 0; u < n; u++)
+            {
+                int d = graph.degree(u);
+                adjacent[u] = new int[Math.max(2, d)];
+                adjacentKeys[u] = new long[Math.max(2, d)];
+                for (int i = 0; i < d; i++)
+                {
+                    int v = graph.target(u, i);
+                    if (v != u)
+                    {
+                        adjacent[u][degree[u]] = v;
+                        adjacentKeys[u][degree[u]] = key(graph.weight(u, i));
+                        degree[u]++;
+                    }
+                }
+            }
+        }
+
+        void contractAll()
+        {
+            // Lazy updates: a router's priority is worked out again when it comes out of the queue, and it goes back
+            // in if it is no longer the smallest.
+            IndexedDaryHeap queue = new IndexedDaryHeap(4, n, graph.names());
+            for (int u = 0; u < n; u++)
+            {
+                queue.insert(u, priority(u));
+            }
+            int order = 0;
+            while (!queue.isEmpty())
+            {
+                int v = queue.poll();
+                int p = priority(v);
+                if (!queue.isEmpty() && p > queue.priority(queue.peek()))
+                {
+                    queue.insert(v, p);
+                    continue;
+                }
+                if (p - contractedNeighbours[v] > CORE_EDGE_DIFFERENCE || degree[v] > CORE_DEGREE)
+                {
+                    // v and every router still queued are the core, with their links and shortcuts as they are now
+                    queue.insert(v, p);
+                    while (!queue.isEmpty())
+                    {
+                        int u = queue.poll();
+                        up[u] = Arrays.copyOf(adjacent[u], degree[u]);
+                        upKeys[u] = Arrays.copyOf(adjacentKeys[u], degree[u]);
+                        rank[u] = order++;
+                        coreSize++;
+                    }
+                    break;
+                }
+                contract(v);
+                rank[v] = order++;
+            }
+        }
+
+        // Edge difference plus contracted neighbours: the shortcuts contracting the router adds less the links it
+        // takes away, and a push towards contracting the graph evenly
+        private int priority(int v)
+        {
+            return witnessSearches(v) - degree[v] + contractedNeighbours[v];
+        }
+
+        // Contract v, which priority() was last worked out for, so the shortcuts it needs are the pending ones
+        private void contract(int v)
+        {
+            for (int i = 0; i < pendingCount; i++)
+            {
+                putArc(pendingFrom[i], pendingTo[i], pendingKeys[i]);
+                putArc(pendingTo[i], pendingFrom[i], pendingKeys[i]);
+            }
+            shortcuts += pendingCount;
+            // the neighbours left all get contracted later, so they are the upward arcs of v
+            up[v] = Arrays.copyOf(adjacent[v], degree[v]);
+            upKeys[v] = Arrays.copyOf(adjacentKeys[v], degree[v]);
+            for (int i = 0; i < degree[v]; i++)
+            {
+                int u = adjacent[v][i];
+                removeArc(u, v);
+                contractedNeighbours[u]++;
+            }
+            degree[v] = 0;
+            adjacent[v] = null;
+            adjacentKeys[v] = null;
+        }
+
+        // For every pair of neighbours u, w of v, look for a route from u to w that avoids v and is no longer than
+        // the one through v. The pairs that have none are kept as the pending shortcuts, and their number returned.
+        private int witnessSearches(int v)
+        {
+            pendingCount = 0;
+            int[] neighbours = Arrays.copyOf(adjacent[v], degree[v]);
+            long[] keys = Arrays.copyOf(adjacentKeys[v], degree[v]);
+            for (int a = 0; a < neighbours.length; a++)
+            {
+                int u = neighbours[a];
+                long limit = 0;
+                for (int b = a + 1; b < neighbours.length; b++)
+                {
+                    limit = Math.max(limit, keys[a] + keys[b]);
+                }
+                if (limit == 0)
+                {
+                    continue;
+                }
+                searchNumber++;
+                for (int b = a + 1; b < neighbours.length; b++)
+                {
+                    target[neighbours[b]] = searchNumber;
+                }
+                search(u, v, limit, neighbours.length - a - 1);
+                for (int b = a + 1; b < neighbours.length; b++)
+                {
+                    int w = neighbours[b];
+                    long through = keys[a] + keys[b];
+                    if (distance[w] > through)
+                    {
+                        addPending(u, w, through);
+                    }
+                }
+                reset();
+            }
+            return pendingCount;
+        }
+
+        private void addPending(int u, int w, long key)
+        {
+            if (pendingCount == pendingFrom.length)
+            {
+                pendingFrom = Arrays.copyOf(pendingFrom, pendingCount * 2);
+                pendingTo = Arrays.copyOf(pendingTo, pendingCount * 2);
+                pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+            }
+            pendingFrom[pendingCount] = u;
+            pendingTo[pendingCount] = w;
+            pendingKeys[pendingCount] = key;
+            pendingCount++;
+        }
+
+        // Dijkstra from source in the graph left, without the router avoided, until the targets marked with the search
+        // number are settled, or up to distance limit, the settle limit or the hop limit
+        private void search(int source, int avoided, long limit, int targets)
+        {
+            distance[source] = 0;
+            hops[source] = 0;
+            touched[touchedCount++] = source;
+            heap.push(source, 0);
+            int settled = 0;
+            while (!heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT)
+            {
+                long d = heap.peekKey();
+                int u = heap.poll();
+                if (d > distance[u])
+                {
+                    continue;
+                }
+                if (d > limit)
+                {
+                    break;
+                }
+                settled++;
+                if (target[u] == searchNumber && --targets == 0)
+                {
+                    break;
+                }
+                for (int i = 0; i < degree[u]; i++)
+                {
+                    int w = adjacent[u][i];
+                    if (w == avoided)
+                    {
+                        continue;
+                    }
+                    long nd = d + adjacentKeys[u][i];
+                    if (nd <= limit && nd < distance[w])
+                    {
+                        if (distance[w] == UNREACHABLE)
+                        {
+                            touched[touchedCount++] = w;
+                        }
+                        distance[w] = nd;
+                        hops[w] = hops[u] + 1;
+                        // a router at the hop limit goes no further, its distance is all the search needs of it
+                        if (hops[w] < WITNESS_HOP_LIMIT)
+                        {
+                            heap.push(w, nd);
+                        }
+                    }
+                }
+            }
+            heap.clear();
+        }
+
+        private void reset()
+        {
+            for (int i = 0; i < touchedCount; i++)
+            {
+                distance[touched[i]] = UNREACHABLE;
+            }
+            touchedCount = 0;
+        }
+
+        // Add the arc u->w, or lower its key if it is there already
+        private void putArc(int u, int w, long key)
+        {
+            for (int i = 0; i < degree[u]; i++)
+            {
+                if (adjacent[u][i] == w)
+                {
+                    adjacentKeys[u][i] = Math.min(adjacentKeys[u][i], key);
+                    return;
+                }
+            }
+            if (degree[u] == adjacent[u].length)
+            {
+                adjacent[u] = Arrays.copyOf(adjacent[u], degree[u] * 2);
+                adjacentKeys[u] = Arrays.copyOf(adjacentKeys[u], degree[u] * 2);
+            }
+            adjacent[u][degree[u]] = w;
+            adjacentKeys[u][degree[u]] = key;
+            degree[u]++;
+        }
+
+        private void removeArc(int u, int w)
+        {
+            for (int i = 0; i < degree[u]; i++)
+            {
+                if (adjacent[u][i] == w)
+                {
+                    int last = --degree[u];
+                    adjacent[u][i] = adjacent[u][last];
+                    adjacentKeys[u][i] = adjacentKeys[u][last];
+                    return;
+                }
+            }
+        }
+
+        ContractionHierarchy finish(long buildNanos)
+        {
+            int[] offsets = new int[n + 1];
+            for (int u = 0; u < n; u++)
+            {
+                offsets[u + 1] = offsets[u] + up[u].length;
+            }
+            int[] targets = new int[offsets[n]];
+            long[] keys = new long[offsets[n]];
+            for (int u = 0; u < n; u++)
+            {
+                System.arraycopy(up[u], 0, targets, offsets[u], up[u].length);
+                System.arraycopy(upKeys[u], 0, keys, offsets[u], up[u].length);
+            }
+            return new ContractionHierarchy(n, rank, offsets, targets, keys, shortcuts, coreSize, buildNanos);
+        }
+    }
+
+    // Workspace of the searches of one query at a time. Each thread that asks queries needs its own.
+    // Both searches stall on demand: a router that a higher ranked neighbour reaches shorter than its own label is on no
+    // shortest route upwards, so it is not searched on from. Links go both ways, so those neighbours are its upward arcs.
+    public final class Query
+    {
+        private final long[] forward = new long[nodeCount];
+        private final long[] backward = new long[nodeCount];
+        // first hop of the route of the forward label, in the searches for a route
+        private final int[] firstHop = new int[nodeCount];
+        // routers with a label on either side, to be reset after the query
+        private final int[] touched = new int[2 * nodeCount];
+        private int touchedCount;
+        private final LongHeap heap = new LongHeap(nodeCount);
+
+        public Query()
+        {
+            Arrays.fill(forward, UNREACHABLE);
+            Arrays.fill(backward, UNREACHABLE);
+        }
+
+        // (distance, hops) key of the shortest least-hop route from source to target, or UNREACHABLE
+        public long distance(int source, int target)
+        {
+            searchBackward(target);
+            long best = UNREACHABLE;
+            forward[source] = 0;
+            touched[touchedCount++] = source;
+            heap.push(source, 0);
+            while (!heap.isEmpty())
+            {
+                long d = heap.peekKey();
+                int u = heap.poll();
+                if (d > forward[u])
+                {
+                    continue;
+                }
+                // every route still to be found is at least this long
+                if (d >= best)
+                {
+                    break;
+                }
+                if (backward[u] != UNREACHABLE)
+                {
+                    best = Math.min(best, d + backward[u]);
+                }
+                if (!stalled(forward, u, d))
+                {
+                    relax(forward, u, d, null);
+                }
+            }
+            clear();
+            return best;
+        }
+
+        // Row {destination, next hop, distance} of the route from source to target, the row the routing table of the
+        // source has, or null if there is none. graph is the topology the hierarchy gives the distances of.
+        // The table's next hop is the first neighbour in name order that a shortest least-hop route leaves by, so the
+        // forward search starts from all the neighbours of the source at once, each labelled as the first hop of its
+        // routes. Among equal labels the first hop first in name order is kept. Keys are never 0, so a router's label
+        // is final before it is searched on from, and the first hop of the best route found is the table's.
+        public String[] route(int source, int target, CsrGraph graph)
+        {
+            int[] nameRank = graph.nameOrder().rank;
+            searchBackward(target);
+            long best = UNREACHABLE;
+            int bestFirstHop = -1;
+            for (int i = 0, degree = graph.degree(source); i < degree; i++)
+            {
+                int f = graph.target(source, i);
+                long first = key(graph.weight(source, i));
+                if (first < forward[f] || (first == forward[f] && nameRank[f] < nameRank[firstHop[f]]))
+                {
+                    if (forward[f] == UNREACHABLE)
+                    {
+                        touched[touchedCount++] = f;
+                    }
+                    forward[f] = first;
+                    firstHop[f] = f;
+                    heap.push(f, first);
+                }
+            }
+            while (!heap.isEmpty())
+            {
+                long d = heap.peekKey();
+                int u = heap.poll();
+                if (d > forward[u])
+                {
+                    continue;
+                }
+                // routes as long as the best one may still have an earlier first hop
+                if (d > best)
+                {
+                    break;
+                }
+                if (backward[u] != UNREACHABLE)
+                {
+                    long through = d + backward[u];
+                    if (through < best || (through == best && nameRank[firstHop[u]] < nameRank[bestFirstHop]))
+                    {
+                        best = through;
+                        bestFirstHop = firstHop[u];
+                    }
+                }
+                if (!stalled(forward, u, d))
+                {
+                    relax(forward, u, d, nameRank);
+                }
+            }
+            clear();
+            if (best == UNREACHABLE)
+            {
+                return null;
+            }
+            return new String[] {graph.name(target), graph.name(bestFirstHop), String.valueOf(ContractionHierarchy.distance(best))};
+        }
+
+        // Every router above the target with its upward distance from it
+        private void searchBackward(int target)
+        {
+            backward[target] = 0;
+            touched[touchedCount++] = target;
+            heap.push(target, 0);
+            while (!heap.isEmpty())
+            {
+                long d = heap.peekKey();
+                int u = heap.poll();
+                if (d > backward[u] || stalled(backward, u, d))
+                {
+                    continue;
+                }
+                relax(backward, u, d, null);
+            }
+        }
+
+        private boolean stalled(long[] label, int u, long d)
+        {
+            for (int i = upOffsets[u]; i < upOffsets[u + 1]; i++)
+            {
+                long via = label[upTargets[i]];
+                if (via != UNREACHABLE && via + upKeys[i] < d)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Relax the upward arcs of u. With nameRank set the labels carry first hops, and ties go to the earlier one.
+        private void relax(long[] label, int u, long d, int[] nameRank)
+        {
+            for (int i = upOffsets[u]; i < upOffsets[u + 1]; i++)
+            {
+                int w = upTargets[i];
+                long nd = d + upKeys[i];
+                if (nd < label[w] || (nameRank != null && nd == label[w] && nameRank[firstHop[u]] < nameRank[firstHop[w]]))
+                {
+                    if (label[w] == UNREACHABLE)
+                    {
+                        touched[touchedCount++] = w;
+                    }
+                    if (nameRank != null)
+                    {
+                        firstHop[w] = firstHop[u];
+                    }
+                    if (nd < label[w])
+                    {
+                        label[w] = nd;
+                        heap.push(w, nd);
+                    }
+                }
+            }
+        }
+
+        private void clear()
+        {
+            heap.clear();
+            for (int i = 0; i < touchedCount; i++)
+            {
+                forward[touched[i]] = UNREACHABLE;
+                backward[touched[i]] = UNREACHABLE;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    // Binary min-heap of (long key, int node) entries, where a node may be in it more than once and stale entries are
+    // skipped by the caller
+    private static final class LongHeap
+    {
+        private long[] keys;
+        private int[] nodes;
+        private int size;
+
+        LongHeap(int capacity)
+        {
+            keys = new long[Math.max(16, Math.min(capacity, 1 << 16))];
+            nodes = new int[keys.length];
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        void clear()
+        {
+            size = 0;
+        }
+
+        long peekKey()
+        {
+            return keys[0];
+        }
+
+        void push(int node, long key)
+        {
+            if (size == keys.length)
+            {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int slot = size++;
+            while (slot > 0)
+            {
+                int parent = (slot - 1) / 2;
+                if (keys[parent] <= key)
+                {
+                    break;
+                }
+                keys[slot] = keys[parent];
+                nodes[slot] = nodes[parent];
+                slot = parent;
+            }
+            keys[slot] = key;
+            nodes[slot] = node;
+        }
+
+        int poll()
+        {
+            int top = nodes[0];
+            long key = keys[--size];
+            int node = nodes[size];
+            int slot = 0;
+            while (true)
+            {
+                int child = slot * 2 + 1;
+                if (child >= size)
+                {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child])
+                {
+                    child++;
+                }
+                if (key <= keys[child])
+                {
+                    break;
+                }
+                keys[slot] = keys[child];
+                nodes[slot] = nodes[child];
+                slot = child;
+            }
+            keys[slot] = key;
+            nodes[slot] = node;
+            return top;
+        }
+    }
+}
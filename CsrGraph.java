@@ -0,0 +1,690 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Undirected weighted topology with router names interned to dense int ids.
+// The bulk of the adjacency lives in compressed sparse row (CSR) arrays: the arcs of router u are
+// targets[offsets[u] .. offsets[u + 1]) with the matching weights, each row sorted by target name, which is the order
+// the neighbour table is printed in. A link is found by binary search on the names.
+// Edits never touch those arrays directly. The first edit of a router copies its row into a small
+// mutable overlay row, and once the overlay grows large enough everything is compacted back into fresh CSR arrays.
+// Since the CSR arrays are never written once built, snapshots share them along with every overlay row. The first edit
+// of a shared row after a snapshot copies it, so a snapshot costs the rows of the routers that change, not the topology.
+public class CsrGraph
+{
+    // The overlay is folded back into the CSR arrays once it holds more than this many arcs or a quarter of the base arcs, whichever is larger.
+    private static final int MIN_COMPACTION_ARCS = 1024;
+
+    // name <-> id interning, done once per router when it is first seen
+    private Map<String, Integer> ids;
+    private String[] names;
+    private int nodeCount;
+    private int edgeCount;
+    // bumped by every change, so anything derived from the topology can tell whether it is still current
+    private long epoch;
+
+    // compressed base adjacency, covering routers [0, baseNodes)
+    private int[] offsets;
+    private int[] targets;
+    private int[] weights;
+    private int baseNodes;
+
+    // mutable overlay, overlayTargets[u] == null means router u still reads from the base arrays
+    private int[][] overlayTargets;
+    private int[][] overlayWeights;
+    private int[] overlayDegree;
+    // generation in which each overlay row was made, rows of older generations may be read by snapshots
+    private int[] overlayGeneration;
+    private int overlayArcs;
+    // bumped by every snapshot, after which nothing made before belongs to this graph alone
+    private int generation;
+    // set once a snapshot reads the same id map, which is then copied before the next router is added
+    private boolean idsShared;
+    // largest weight any link has had, so never below the largest weight of the links there are now
+    private int maxWeight;
+
+    // connected components, updated on every change so a router's component can be listed without searching the graph
+    private ComponentIndex components;
+    // sorted links of every component, which is the LSDB of each of its routers
+    private LinkStateIndex linkStates;
+    // On snapshots the LSDB of a component is built from the snapshot's own rows the first time it is asked for, so
+    // that taking a snapshot does not copy the link sets of the graph. Keyed by component root.
+    private Map<Integer, NavigableSet<LinkStateIndex.Link>> snapshotLinkStates;
+
+    // set on snapshots, which reject every change so that any number of threads can read them without locking
+    private boolean frozen;
+
+    // Alphabetical order of the routers, worked out again when it is asked for after routers were added
+    private volatile NameOrder nameOrder;
+
+    // Told about every change after it is applied
+    private List<TopologyListener> listeners;
+
+    public CsrGraph()
+    {
+        this.ids = new HashMap<>();
+        this.names = new String[16];
+        this.offsets = new int[1];
+        this.targets = new int[0];
+        this.weights = new int[0];
+        this.overlayTargets = new int[16][];
+        this.overlayWeights = new int[16][];
+        this.overlayDegree = new int[16];
+        this.overlayGeneration = new int[16];
+        this.components = new ComponentIndex(16);
+        this.linkStates = new LinkStateIndex(16);
+    }
+
+    // Intern a router name and return its id. Adding an existing router just returns its id.
+    public int addNode(String name)
+    {
+        Integer existing = ids.get(name);
+        if (existing != null)
+        {
+            return existing;
+        }
+        checkWritable();
+        if (nodeCount == names.length)
+        {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            overlayTargets = Arrays.copyOf(overlayTargets, capacity);
+            overlayWeights = Arrays.copyOf(overlayWeights, capacity);
+            overlayDegree = Arrays.copyOf(overlayDegree, capacity);
+            overlayGeneration = Arrays.copyOf(overlayGeneration, capacity);
+        }
+        if (idsShared)
+        {
+            ids = new HashMap<>(ids);
+            idsShared = false;
+        }
+        // names[] past the old count is not read by snapshots, so it is written in place
+        int id = nodeCount++;
+        names[id] = name;
+        ids.put(name, id);
+        components.addNode(id);
+        epoch++;
+        if (listeners != null)
+        {
+            for (TopologyListener listener : listeners)
+            {
+                listener.nodeAdded(id);
+            }
+        }
+        return id;
+    }
+
+    // Id of the router, or -1 if it is not part of the topology.
+    public int id(String name)
+    {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id)
+    {
+        return names[id];
+    }
+
+    // Names of all routers by id, valid in [0, nodeCount()). This is the graph's own array and must not be changed.
+    public String[] names()
+    {
+        return names;
+    }
+
+    // The routers in alphabetical order and the place of each router in it, so that two routers can be put in name
+    // order by comparing two ints. Routers are only ever added, so the order after new routers is the old one merged
+    // with the new routers sorted, O(n + k log k) for k new routers.
+    public NameOrder nameOrder()
+    {
+        NameOrder order = nameOrder;
+        if (order == null || order.routers.length != nodeCount)
+        {
+            order = new NameOrder(order, names, nodeCount);
+            nameOrder = order;
+        }
+        return order;
+    }
+
+    // Upper bound of the link weights
+    public int maxWeight()
+    {
+        return maxWeight;
+    }
+
+    public int nodeCount()
+    {
+        return nodeCount;
+    }
+
+    public long epoch()
+    {
+        return epoch;
+    }
+
+    public ComponentIndex components()
+    {
+        return components;
+    }
+
+    // Links of the component of u, sorted the way the LSDB is printed. The set must not be changed by the caller.
+    public NavigableSet<LinkStateIndex.Link> linkStates(int u)
+    {
+        int root = components.root(u);
+        if (frozen)
+        {
+            return snapshotLinkStates.computeIfAbsent(root, this::collectLinkStates);
+        }
+        return linkStates.links(root);
+    }
+
+    // Links of the component with this root, found by going through its members
+    private NavigableSet<LinkStateIndex.Link> collectLinkStates(int root)
+    {
+        List<LinkStateIndex.Link> links = new ArrayList<>();
+        int u = root;
+        do
+        {
+            for (int i = 0, d = degree(u); i < d; i++)
+            {
+                int v = target(u, i);
+                // each link once, and a router's link to itself not at all
+                if (names[u].compareTo(names[v]) < 0)
+                {
+                    links.add(new LinkStateIndex.Link(u, v, names[u], names[v], weight(u, i)));
+                }
+            }
+            u = components.next(u);
+        }
+        while (u != root);
+        return links.isEmpty() ? Collections.emptyNavigableSet() : LinkStateIndex.sorted(links);
+    }
+
+    // Number of undirected links
+    public int edgeCount()
+    {
+        return edgeCount;
+    }
+
+    public int degree(int u)
+    {
+        if (overlayTargets[u] != null)
+        {
+            return overlayDegree[u];
+        }
+        return u < baseNodes ? offsets[u + 1] - offsets[u] : 0;
+    }
+
+    // Id of the i-th neighbour of u, 0 <= i < degree(u)
+    public int target(int u, int i)
+    {
+        int[] row = overlayTargets[u];
+        return row != null ? row[i] : targets[offsets[u] + i];
+    }
+
+    // Weight of the link to the i-th neighbour of u
+    public int weight(int u, int i)
+    {
+        int[] row = overlayWeights[u];
+        return row != null ? row[i] : weights[offsets[u] + i];
+    }
+
+    // Position of v in the adjacency row of u, or a negative value if the link does not exist.
+    public int findArc(int u, int v)
+    {
+        if (overlayTargets[u] != null)
+        {
+            return search(overlayTargets[u], 0, overlayDegree[u], v);
+        }
+        if (u >= baseNodes)
+        {
+            return -1;
+        }
+        int index = search(targets, offsets[u], offsets[u + 1], v);
+        return index < 0 ? -1 : index - offsets[u];
+    }
+
+    public boolean hasLink(int u, int v)
+    {
+        return findArc(u, v) >= 0;
+    }
+
+    // Weight of the link u-v, or -1 if the link does not exist.
+    public int linkWeight(int u, int v)
+    {
+        int i = findArc(u, v);
+        return i < 0 ? -1 : weight(u, i);
+    }
+
+    // Add the undirected link u-v, or overwrite its weight if it already exists.
+    public void addLink(int u, int v, int weight)
+    {
+        checkWritable();
+        checkNode(u);
+        checkNode(v);
+        int oldWeight = linkWeight(u, v);
+        boolean added = putArc(u, v, weight);
+        putArc(v, u, weight);
+        maxWeight = Math.max(maxWeight, weight);
+        indexLink(u, v, weight, added);
+        maybeCompact();
+        fireLinkChanged(u, v, oldWeight, weight);
+    }
+
+    // Bring the components and the link-state index up to date with the link u-v, which is new if added is set.
+    private void indexLink(int u, int v, int weight, boolean added)
+    {
+        if (added)
+        {
+            edgeCount++;
+            int rootU = components.root(u);
+            int rootV = components.root(v);
+            components.union(u, v);
+            linkStates.merge(rootU, rootV, components.root(u));
+        }
+        // a router's link to itself is not part of the LSDB
+        if (u != v)
+        {
+            linkStates.put(components.root(u), new LinkStateIndex.Link(u, v, names[u], names[v], weight));
+        }
+    }
+
+    public void updateLink(int u, int v, int weight)
+    {
+        addLink(u, v, weight);
+    }
+
+    public void removeLink(int u, int v)
+    {
+        checkWritable();
+        checkNode(u);
+        checkNode(v);
+        int oldWeight = linkWeight(u, v);
+        if (oldWeight == -1)
+        {
+            return;
+        }
+        deleteArc(u, v);
+        // a link from a router to itself is a single arc
+        if (u != v)
+        {
+            deleteArc(v, u);
+        }
+        edgeCount--;
+        int oldRoot = components.root(u);
+        linkStates.remove(oldRoot, new LinkStateIndex.Link(u, v, names[u], names[v], oldWeight));
+        components.linkRemoved(this, u, v);
+        if (!components.connected(u, v))
+        {
+            linkStates.split(oldRoot, components.root(u), components.root(v), components);
+        }
+        maybeCompact();
+        fireLinkChanged(u, v, oldWeight, -1);
+    }
+
+    public void addListener(TopologyListener listener)
+    {
+        if (listeners == null)
+        {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    private void fireLinkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        if (oldWeight == newWeight)
+        {
+            return;
+        }
+        epoch++;
+        if (listeners == null)
+        {
+            return;
+        }
+        for (TopologyListener listener : listeners)
+        {
+            listener.linkChanged(u, v, oldWeight, newWeight);
+        }
+    }
+
+    // Fold every overlay row back into freshly built CSR arrays.
+    public void compact()
+    {
+        if (frozen)
+        {
+            return;
+        }
+        buildCsr(this);
+        Arrays.fill(overlayTargets, null);
+        Arrays.fill(overlayWeights, null);
+        Arrays.fill(overlayDegree, 0);
+        Arrays.fill(overlayGeneration, 0);
+        overlayArcs = 0;
+    }
+
+    // Topology made from CSR arrays as written by snapshot(), with names[u] the name of router u and every row sorted by target name.
+    public static CsrGraph fromCsr(String[] names, int[] offsets, int[] targets, int[] weights)
+    {
+        CsrGraph graph = new CsrGraph();
+        int nodeCount = offsets.length - 1;
+        for (int u = 0; u < nodeCount; u++)
+        {
+            graph.addNode(names[u]);
+        }
+        graph.offsets = offsets;
+        graph.targets = targets;
+        graph.weights = weights;
+        graph.baseNodes = nodeCount;
+        for (int weight : weights)
+        {
+            graph.maxWeight = Math.max(graph.maxWeight, weight);
+        }
+        // Each link is in the rows of both its routers, so it is counted from the smaller id. The components are
+        // joined up first, so that every link goes straight into the link-state set of its final component.
+        for (int u = 0; u < nodeCount; u++)
+        {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++)
+            {
+                if (u <= targets[i])
+                {
+                    graph.edgeCount++;
+                    graph.components.union(u, targets[i]);
+                }
+            }
+        }
+        // Rows are sorted by neighbour name, so going through the routers in name order and taking the neighbours named
+        // after each one lists the links of every component in LSDB order, and each set is built in one pass.
+        Integer[] byName = new Integer[nodeCount];
+        for (int u = 0; u < nodeCount; u++)
+        {
+            byName[u] = u;
+        }
+        Arrays.sort(byName, Comparator.comparing(u -> names[u]));
+        List<List<LinkStateIndex.Link>> sorted = new ArrayList<>(Collections.nCopies(nodeCount, null));
+        for (int u : byName)
+        {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++)
+            {
+                int v = targets[i];
+                if (names[v].compareTo(names[u]) > 0)
+                {
+                    int root = graph.components.root(u);
+                    if (sorted.get(root) == null)
+                    {
+                        sorted.set(root, new ArrayList<>());
+                    }
+                    sorted.get(root).add(new LinkStateIndex.Link(u, v, names[u], names[v], weights[i]));
+                }
+            }
+        }
+        for (int root = 0; root < nodeCount; root++)
+        {
+            if (sorted.get(root) != null)
+            {
+                graph.linkStates.load(root, sorted.get(root));
+            }
+        }
+        return graph;
+    }
+
+    // Immutable copy of the current topology. Later changes to this graph do not show up in the copy.
+    // The copy shares the CSR arrays, the overlay rows and the id map, and only the per-router arrays are copied, so it
+    // takes O(n) time whatever the number of links. Whatever a later edit would change is copied by that edit first.
+    public CsrGraph snapshot()
+    {
+        if (frozen)
+        {
+            return this;
+        }
+        CsrGraph copy = new CsrGraph();
+        copy.ids = ids;
+        idsShared = true;
+        copy.names = names;
+        copy.nodeCount = nodeCount;
+        copy.edgeCount = edgeCount;
+        copy.epoch = epoch;
+        copy.maxWeight = maxWeight;
+        copy.nameOrder = nameOrder;
+        copy.offsets = offsets;
+        copy.targets = targets;
+        copy.weights = weights;
+        copy.baseNodes = baseNodes;
+        copy.overlayTargets = Arrays.copyOf(overlayTargets, nodeCount);
+        copy.overlayWeights = Arrays.copyOf(overlayWeights, nodeCount);
+        copy.overlayDegree = Arrays.copyOf(overlayDegree, nodeCount);
+        copy.overlayArcs = overlayArcs;
+        copy.components = new ComponentIndex(components, nodeCount);
+        copy.snapshotLinkStates = new ConcurrentHashMap<>();
+        copy.frozen = true;
+        generation++;
+        return copy;
+    }
+
+    // Immutable graph over the routers of this one with other links, given as CSR rows that are ordered by neighbour
+    // name like this graph's rows. Like a snapshot it shares the names, the id map and the name order, and builds the
+    // LSDB of a component only when it is asked for, so it takes O(n + m) on top of finding its components.
+    public CsrGraph withLinks(int[] offsets, int[] targets, int[] weights)
+    {
+        if (offsets.length != nodeCount + 1)
+        {
+            throw new IllegalArgumentException("Expected rows for " + nodeCount + " routers, got " + (offsets.length - 1));
+        }
+        CsrGraph copy = new CsrGraph();
+        copy.ids = ids;
+        idsShared = true;
+        copy.names = names;
+        copy.nodeCount = nodeCount;
+        // worked out here once, rather than by every graph made from this one
+        copy.nameOrder = nameOrder();
+        copy.offsets = offsets;
+        copy.targets = targets;
+        copy.weights = weights;
+        copy.baseNodes = nodeCount;
+        copy.overlayTargets = new int[nodeCount][];
+        copy.overlayWeights = new int[nodeCount][];
+        copy.overlayDegree = new int[nodeCount];
+        copy.components = new ComponentIndex(nodeCount);
+        for (int u = 0; u < nodeCount; u++)
+        {
+            copy.components.addNode(u);
+        }
+        for (int u = 0; u < nodeCount; u++)
+        {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++)
+            {
+                copy.maxWeight = Math.max(copy.maxWeight, weights[i]);
+                // each link is in the rows of both its routers, so it is counted from the smaller id
+                if (u <= targets[i])
+                {
+                    copy.edgeCount++;
+                    copy.components.union(u, targets[i]);
+                }
+            }
+        }
+        copy.snapshotLinkStates = new ConcurrentHashMap<>();
+        copy.frozen = true;
+        return copy;
+    }
+
+    // Write the current adjacency of every router into fresh CSR arrays of the target graph.
+    private void buildCsr(CsrGraph target)
+    {
+        int[] newOffsets = new int[nodeCount + 1];
+        for (int u = 0; u < nodeCount; u++)
+        {
+            newOffsets[u + 1] = newOffsets[u] + degree(u);
+        }
+        int[] newTargets = new int[newOffsets[nodeCount]];
+        int[] newWeights = new int[newOffsets[nodeCount]];
+        for (int u = 0; u < nodeCount; u++)
+        {
+            int base = newOffsets[u];
+            for (int i = 0, d = degree(u); i < d; i++)
+            {
+                newTargets[base + i] = target(u, i);
+                newWeights[base + i] = weight(u, i);
+            }
+        }
+        target.offsets = newOffsets;
+        target.targets = newTargets;
+        target.weights = newWeights;
+        target.baseNodes = nodeCount;
+    }
+
+    private void maybeCompact()
+    {
+        if (overlayArcs > Math.max(MIN_COMPACTION_ARCS, targets.length / 4))
+        {
+            compact();
+        }
+    }
+
+    private void checkWritable()
+    {
+        if (frozen)
+        {
+            throw new IllegalStateException("Topology snapshots cannot be changed");
+        }
+    }
+
+    private void checkNode(int u)
+    {
+        if (u < 0 || u >= nodeCount)
+        {
+            throw new IllegalArgumentException("Unknown router id: " + u);
+        }
+    }
+
+    // Binary search for router v in row[from, to), which is sorted by name. Returns its index, or -(insertion point) - 1.
+    private int search(int[] row, int from, int to, int v)
+    {
+        String name = names[v];
+        int low = from;
+        int high = to - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int w = row[mid];
+            if (w == v)
+            {
+                return mid;
+            }
+            if (names[w].compareTo(name) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Insert or overwrite the arc u->v in the overlay row of u, returns true if the arc is new.
+    private boolean putArc(int u, int v, int weight)
+    {
+        openOverlay(u);
+        int[] row = overlayTargets[u];
+        int degree = overlayDegree[u];
+        int index = search(row, 0, degree, v);
+        if (index >= 0)
+        {
+            overlayWeights[u][index] = weight;
+            return false;
+        }
+        index = -index - 1;
+        if (degree == row.length)
+        {
+            overlayTargets[u] = row = Arrays.copyOf(row, Math.max(4, degree * 2));
+            overlayWeights[u] = Arrays.copyOf(overlayWeights[u], row.length);
+        }
+        int[] rowWeights = overlayWeights[u];
+        System.arraycopy(row, index, row, index + 1, degree - index);
+        System.arraycopy(rowWeights, index, rowWeights, index + 1, degree - index);
+        row[index] = v;
+        rowWeights[index] = weight;
+        overlayDegree[u]++;
+        overlayArcs++;
+        return true;
+    }
+
+    private void deleteArc(int u, int v)
+    {
+        openOverlay(u);
+        int[] row = overlayTargets[u];
+        int[] rowWeights = overlayWeights[u];
+        int degree = overlayDegree[u];
+        int index = search(row, 0, degree, v);
+        System.arraycopy(row, index + 1, row, index, degree - index - 1);
+        System.arraycopy(rowWeights, index + 1, rowWeights, index, degree - index - 1);
+        overlayDegree[u]--;
+        overlayArcs--;
+    }
+
+    // Copy the base row of u into the overlay the first time u is edited after a compaction, and copy an overlay row
+    // that a snapshot shares the first time it is edited after the snapshot.
+    private void openOverlay(int u)
+    {
+        if (overlayTargets[u] != null)
+        {
+            if (overlayGeneration[u] != generation)
+            {
+                overlayTargets[u] = overlayTargets[u].clone();
+                overlayWeights[u] = overlayWeights[u].clone();
+                overlayGeneration[u] = generation;
+            }
+            return;
+        }
+        int degree = degree(u);
+        int[] row = new int[degree + 4];
+        int[] rowWeights = new int[degree + 4];
+        if (degree > 0)
+        {
+            System.arraycopy(targets, offsets[u], row, 0, degree);
+            System.arraycopy(weights, offsets[u], rowWeights, 0, degree);
+        }
+        overlayTargets[u] = row;
+        overlayWeights[u] = rowWeights;
+        overlayDegree[u] = degree;
+        overlayGeneration[u] = generation;
+        overlayArcs += degree;
+    }
+
+    // Routers sorted by name, and rank[u] the index of router u in routers. The fields are final and the arrays are
+    // never changed, so an order can be read by any number of threads.
+    public static final class NameOrder
+    {
+        public final int[] routers;
+        public final int[] rank;
+
+        NameOrder(NameOrder previous, String[] names, int nodeCount)
+        {
+            int known = previous == null ? 0 : previous.routers.length;
+            Integer[] added = new Integer[nodeCount - known];
+            for (int i = 0; i < added.length; i++)
+            {
+                added[i] = known + i;
+            }
+            Arrays.sort(added, Comparator.comparing(u -> names[u]));
+            routers = new int[nodeCount];
+            rank = new int[nodeCount];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < nodeCount; k++)
+            {
+                int u;
+                if (j == added.length || (i < known && names[previous.routers[i]].compareTo(names[added[j]]) < 0))
+                {
+                    u = previous.routers[i++];
+                }
+                else
+                {
+                    u = added[j++];
+                }
+                routers[k] = u;
+                rank[u] = k;
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import java.util.*;
+
+// The Dijkstra behind every ShortestPathEngine. Routers are settled in the order the queue hands them out, and each
+// settled router offers its route to its neighbours, which take it if ShortestPathEngine.better() says so.
+// Only the queue differs from one engine to the next.
+// Each thread runs in its own Workspace of int arrays sized to the router count, kept from one run to the next along
+// with its queue, so that once they have grown to the topology an SPF run allocates nothing. writeRoutingTable()
+// prints the rows straight from the workspace; routingTable() still makes the String[] rows it returns.
+public class DijkstraEngine implements ShortestPathEngine
+{
+    // Makes the queue of one run over the graph
+    public interface QueueFactory
+    {
+        SpfQueue create(CsrGraph graph);
+    }
+
+    // The labels of one thread's runs. A router's labels are only valid when its stamp is the epoch of the current run,
+    // or one more once that run has settled it, so a run starts by moving the epoch on instead of clearing n entries.
+    private static final class Workspace
+    {
+        int[] distance = new int[0];
+        int[] hops = new int[0];
+        int[] firstHop = new int[0];
+        int[] stamp = new int[0];
+        int epoch;
+        // routers settled by the run, without the root, in settle order until they are sorted by name
+        int[] settled = new int[0];
+        int settledCount;
+
+        // the queue of the last run, reused while the graph, its size and its largest weight stay the same
+        SpfQueue queue;
+        CsrGraph queueGraph;
+        int queueNodes;
+        int queueMaxWeight;
+
+        void reset(int n)
+        {
+            if (distance.length < n)
+            {
+                int capacity = Math.max(n, distance.length * 2);
+                distance = new int[capacity];
+                hops = new int[capacity];
+                firstHop = new int[capacity];
+                stamp = new int[capacity];
+                settled = new int[capacity];
+                epoch = 0;
+            }
+            if (epoch >= Integer.MAX_VALUE - 2)
+            {
+                Arrays.fill(stamp, 0);
+                epoch = 0;
+            }
+            epoch += 2;
+            settledCount = 0;
+        }
+
+        boolean isSettled(int u)
+        {
+            return stamp[u] == epoch + 1;
+        }
+
+        SpfQueue queue(QueueFactory queues, CsrGraph graph)
+        {
+            if (queue == null || queueGraph != graph || queueNodes != graph.nodeCount() || queueMaxWeight != graph.maxWeight())
+            {
+                queue = queues.create(graph);
+                queueGraph = graph;
+                queueNodes = graph.nodeCount();
+                queueMaxWeight = graph.maxWeight();
+            }
+            else
+            {
+                queue.clear();
+            }
+            return queue;
+        }
+    }
+
+    private final QueueFactory queues;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    public DijkstraEngine(QueueFactory queues)
+    {
+        this.queues = queues;
+    }
+
+    @Override
+    public List<String[]> routingTable(String router, CsrGraph graph)
+    {
+        return routingTable(router, graph, null);
+    }
+
+    @Override
+    public List<String[]> routingTable(String router, CsrGraph graph, Counters counters)
+    {
+        int root = graph.id(router);
+        // Isolated/unconnected router, then we just do nothing and return it.
+        if (graph.components().size(root) == 1)
+        {
+            return new ArrayList<>();
+        }
+        Workspace w = workspaces.get();
+        run(root, -1, graph, w, counters);
+        // Sort router in shortest path alphabetically for the requirement of routing table.
+        // Sorting here rather than when printing keeps cached rows read-only, so several threads can print them at once.
+        sortByName(w, graph, root);
+        List<String[]> result = new ArrayList<>(w.settledCount);
+        for (int i = 0; i < w.settledCount; i++)
+        {
+            int u = w.settled[i];
+            result.add(new String[] {graph.name(u), graph.name(w.firstHop[u]), String.valueOf(w.distance[u])});
+        }
+        return result;
+    }
+
+    // The rows of routingTable(), written as they come out of the workspace
+    @Override
+    public int writeRoutingTable(String router, CsrGraph graph, TableWriter out, Counters counters)
+    {
+        int root = graph.id(router);
+        if (graph.components().size(root) == 1)
+        {
+            return 0;
+        }
+        Workspace w = workspaces.get();
+        run(root, -1, graph, w, counters);
+        sortByName(w, graph, root);
+        for (int i = 0; i < w.settledCount; i++)
+        {
+            int u = w.settled[i];
+            out.text(graph.name(u)).bar().text(graph.name(w.firstHop[u])).bar().number(w.distance[u]).newLine();
+        }
+        return w.settledCount;
+    }
+
+    // The same run as for the routing table up to the moment the destination is settled, which is when its row is
+    // final, so the row is the one the table would have.
+    @Override
+    public String[] route(String router, String destination, CsrGraph graph)
+    {
+        int root = graph.id(router);
+        int target = graph.id(destination);
+        if (root == -1 || target == -1 || root == target || !graph.components().connected(root, target))
+        {
+            return null;
+        }
+        Workspace w = workspaces.get();
+        run(root, target, graph, w, null);
+        if (!w.isSettled(target))
+        {
+            return null;
+        }
+        return new String[] {graph.name(target), graph.name(w.firstHop[target]), String.valueOf(w.distance[target])};
+    }
+
+    // Settle the routers of the root's component into the workspace. Stops once the target is settled, pass -1 to
+    // settle the whole component.
+    // The work is counted in locals whether or not counters are asked for, which costs nothing next to the run.
+    private void run(int root, int target, CsrGraph graph, Workspace workspace, Counters counters)
+    {
+        /*
+            Dijkstra as stated in lecture, with N the set of settled routers:
+            1 Initialization: D(root) = 0 and D(v) = infinity for all other v, queue = {root}
+            2 Loop
+            3   find w not in N such that D(w) is a minimum, which is queue.poll()
+            4   add w to N
+            5   update D(v) for all v adjacent to w and not in N: D(v) = min( D(v), D(w) + c(w,v) ), and queue v again
+                (or lower its place in the queue) when D(v) or its hops drop
+            6 until the queue is empty, which is when all routers of the component are in N
+        */
+
+        // Labels of every router by id: distance from the root, hops, and the first router after the root on the path.
+        // A router without the stamp of this run is at infinity.
+        workspace.reset(graph.nodeCount());
+        int[] distance = workspace.distance;
+        int[] hops = workspace.hops;
+        int[] firstHop = workspace.firstHop;
+        int[] stamp = workspace.stamp;
+        int labelled = workspace.epoch;
+        int settled = labelled + 1;
+        SpfQueue queue = workspace.queue(queues, graph);
+        distance[root] = 0;
+        hops[root] = 0;
+        stamp[root] = labelled;
+        queue.push(root, 0, 0);
+        long settledCount = 0;
+        long relaxed = 0;
+        long pushes = 1;
+        long decreaseKeys = 0;
+        long tieBreaks = 0;
+
+        while (!queue.isEmpty())
+        {
+            int w = queue.poll();
+            stamp[w] = settled;
+            settledCount++;
+            if (w != root)
+            {
+                workspace.settled[workspace.settledCount++] = w;
+                if (w == target)
+                {
+                    break;
+                }
+            }
+
+            // update D(v) for all v adjacent to w and not settled yet
+            for (int i = 0, degree = graph.degree(w); i < degree; i++)
+            {
+                int v = graph.target(w, i);
+                if (stamp[v] == settled)
+                {
+                    continue;
+                }
+                relaxed++;
+                int d = distance[w] + graph.weight(w, i);
+                int h = hops[w] + 1;
+                int f = w == root ? v : firstHop[w];
+                boolean reached = stamp[v] == labelled;
+                if (reached && d == distance[v])
+                {
+                    tieBreaks++;
+                }
+                if (!reached || ShortestPathEngine.better(d, h, graph.name(f), distance[v], hops[v], graph.name(firstHop[v])))
+                {
+                    // A label that only wins on next hop keeps the distance and hops, and so its place in the queue.
+                    boolean moves = !reached || d < distance[v] || h < hops[v];
+                    stamp[v] = labelled;
+                    distance[v] = d;
+                    hops[v] = h;
+                    firstHop[v] = f;
+                    if (moves)
+                    {
+                        if (reached)
+                        {
+                            decreaseKeys++;
+                        }
+                        queue.push(v, d, h);
+                        pushes++;
+                    }
+                }
+            }
+        }
+        if (counters != null)
+        {
+            counters.settled += settledCount;
+            counters.relaxed += relaxed;
+            counters.pushes += pushes;
+            counters.decreaseKeys += decreaseKeys;
+            counters.stalePops += queue.stalePops();
+            counters.tieBreaks += tieBreaks;
+        }
+    }
+
+    // Put the settled routers of the workspace in name order. When they are a good part of the topology, the graph's
+    // NameOrder is walked for the ones settled, otherwise their ranks are heap sorted in place, which unlike
+    // Arrays.sort never allocates a merge buffer.
+    private static void sortByName(Workspace w, CsrGraph graph, int root)
+    {
+        CsrGraph.NameOrder order = graph.nameOrder();
+        int count = w.settledCount;
+        int[] settled = w.settled;
+        if ((long) count * 8 >= graph.nodeCount())
+        {
+            int k = 0;
+            for (int u : order.routers)
+            {
+                // the root is settled as well, but it has no row
+                if (u != root && w.isSettled(u))
+                {
+                    settled[k++] = u;
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            settled[i] = order.rank[settled[i]];
+        }
+        for (int i = count / 2 - 1; i >= 0; i--)
+        {
+            siftDown(settled, i, count);
+        }
+        for (int end = count - 1; end > 0; end--)
+        {
+            int top = settled[0];
+            settled[0] = settled[end];
+            settled[end] = top;
+            siftDown(settled, 0, end);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            settled[i] = order.routers[settled[i]];
+        }
+    }
+
+    // Max-heap sift of a[i] within a[0, size)
+    private static void siftDown(int[] a, int i, int size)
+    {
+        int value = a[i];
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if (child + 1 < size && a[child + 1] > a[child])
+            {
+                child++;
+            }
+            if (a[child] <= value)
+            {
+                break;
+            }
+            a[i] = a[child];
+            i = child;
+        }
+        a[i] = value;
+    }
+}
@@ -0,0 +1,88 @@
+// Histogram of non-negative longs, such as latencies in nanoseconds or routers settled by one SPF run, for summaries
+// that have to cost next to nothing per value. Values below 16 have a bucket each, and every power of two above is split
+// into 8 buckets, so a percentile is within 1/8 of the value it stands for. Recording is a few shifts and an increment
+// into a fixed array of 496 counts, with no allocation.
+public class Histogram
+{
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    // the linear buckets, then 8 for each power of two from 2^4 to 2^63
+    private static final int BUCKETS = LINEAR + (64 - 4) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long value)
+    {
+        value = Math.max(0, value);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long sum()
+    {
+        return sum;
+    }
+
+    public long max()
+    {
+        return max;
+    }
+
+    public double mean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // The value p percent of the values are at or below, rounded up to the end of its bucket. 0 when nothing was recorded.
+    public long percentile(double p)
+    {
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += counts[bucket];
+            if (seen >= rank)
+            {
+                return Math.min(upper(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < LINEAR)
+        {
+            return (int) value;
+        }
+        // the leading bit picks the power of two, the three bits after it the bucket within it
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that goes into the bucket
+    private static long upper(int bucket)
+    {
+        if (bucket < LINEAR)
+        {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long upper = ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        // the last bucket ends past the largest long
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.*;
+
+// Incremental SPF mode: keeps the shortest path tree of every queried router between updates and, whenever a link changes,
+// repairs only the part of each tree whose routes can change, in the style of the Ramalingam-Reps dynamic SPT algorithm.
+//   - a link gets cheaper or is added: the endpoint that now has a better route is queued and the improvement is
+//     propagated Dijkstra-style, stopping at routers whose route does not get better.
+//   - a tree link gets more expensive or is removed: only the subtree hanging below it can get worse. Its routes are
+//     cleared, seeded from the best neighbour outside the subtree and settled again with Dijkstra inside the subtree.
+//   - a non-tree link gets more expensive or is removed: no route changes.
+// A route is labelled (distance, hops, first hop) and compared in that order, first hops by router name, which are the
+// least-hops and alphabetical next hop tie-break rules of routingTable. Because a tree stores exactly those labels, a
+// repaired tree prints the same routing table as a full recompute. Routers are queued by (distance, hops) as in the
+// full SPF, and every link adds a hop, so a route only ever goes through routers that come before it, zero-weight
+// links included.
+// Every tree holds four int arrays over all routers, so the trees kept are bounded by the memory they take: the least
+// recently queried tree is dropped once they would take more than the budget, and recomputed if it is queried again.
+public class IncrementalSpf implements TopologyListener
+{
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    // Bytes of tree arrays kept at once, 16 per router and tree. 64 trees of 2^18 routers, 16 of 2^20.
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    // Shortest path tree of one router, every array indexed by router id
+    public class Tree
+    {
+        int root;
+        int[] distance;
+        int[] hops;
+        int[] firstHop;
+        int[] parent;
+
+        Tree(int root, int capacity)
+        {
+            this.root = root;
+            distance = new int[capacity];
+            hops = new int[capacity];
+            firstHop = new int[capacity];
+            parent = new int[capacity];
+            clear(0, capacity);
+        }
+
+        void grow(int capacity)
+        {
+            int oldCapacity = distance.length;
+            if (capacity <= oldCapacity)
+            {
+                return;
+            }
+            distance = Arrays.copyOf(distance, capacity);
+            hops = Arrays.copyOf(hops, capacity);
+            firstHop = Arrays.copyOf(firstHop, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            clear(oldCapacity, capacity);
+        }
+
+        void clear(int from, int to)
+        {
+            for (int v = from; v < to; v++)
+            {
+                reset(v);
+            }
+        }
+
+        void reset(int v)
+        {
+            distance[v] = UNREACHABLE;
+            hops[v] = 0;
+            firstHop[v] = -1;
+            parent[v] = -1;
+        }
+    }
+
+    private final CsrGraph graph;
+    private final long memoryBudget;
+    // router -> its tree, least recently queried first
+    private final LinkedHashMap<Integer, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Workspace shared by all trees. The heap is empty between operations, and stamp[] marks the subtree being repaired.
+    private String[] names;
+    private IndexedDaryHeap heap;
+    private int[] stamp;
+    private int currentStamp;
+    private int[] subtree;
+
+    // statistics for the benchmark
+    private long fullRuns;
+    private long repairs;
+    private long touchedNodes;
+
+    public IncrementalSpf(CsrGraph graph)
+    {
+        this(graph, DEFAULT_MEMORY_BUDGET);
+    }
+
+    public IncrementalSpf(CsrGraph graph, long memoryBudget)
+    {
+        this.graph = graph;
+        this.memoryBudget = memoryBudget;
+        this.names = new String[Math.max(16, graph.nodeCount())];
+        for (int u = 0; u < graph.nodeCount(); u++)
+        {
+            names[u] = graph.name(u);
+        }
+        resizeWorkspace();
+        graph.addListener(this);
+    }
+
+    // Routing table rows {destination, next hop, distance} of the router from its kept tree, sorted by destination.
+    public List<String[]> routes(int root)
+    {
+        Tree tree = tree(root);
+        List<String[]> result = new ArrayList<>();
+        for (int v = 0; v < graph.nodeCount(); v++)
+        {
+            if (v != root && tree.distance[v] != UNREACHABLE)
+            {
+                result.add(new String[] {graph.name(v), graph.name(tree.firstHop[v]), String.valueOf(tree.distance[v])});
+            }
+        }
+        Collections.sort(result, (e1, e2) -> e1[0].compareTo(e2[0]));
+        return result;
+    }
+
+    // The kept tree of the router, computed in full the first time it is asked for.
+    public Tree tree(int root)
+    {
+        Tree tree = trees.get(root);
+        if (tree == null)
+        {
+            tree = computeTree(root);
+            trees.put(root, tree);
+            trim();
+        }
+        return tree;
+    }
+
+    // Drop the least recently queried trees until the rest fit in the memory budget, always keeping the newest one.
+    private void trim()
+    {
+        long treeBytes = 16L * names.length;
+        Iterator<Tree> iterator = trees.values().iterator();
+        while (trees.size() > 1 && trees.size() * treeBytes > memoryBudget)
+        {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    // Full SPF from the router, using the same settle order as routingTable: smallest distance first, then fewest hops,
+    // then alphabetical.
+    public Tree computeTree(int root)
+    {
+        fullRuns++;
+        Tree tree = new Tree(root, graph.nodeCount());
+        boolean[] settled = new boolean[graph.nodeCount()];
+        tree.distance[root] = 0;
+        heap.insert(root, 0, 0);
+        while (!heap.isEmpty())
+        {
+            int w = heap.poll();
+            settled[w] = true;
+            for (int i = 0; i < graph.degree(w); i++)
+            {
+                int v = graph.target(w, i);
+                if (!settled[v])
+                {
+                    offer(tree, w, v, graph.weight(w, i));
+                }
+            }
+        }
+        return tree;
+    }
+
+    public long fullRuns()
+    {
+        return fullRuns;
+    }
+
+    public long repairs()
+    {
+        return repairs;
+    }
+
+    // Routers whose route was re-examined by the repairs so far
+    public long touchedNodes()
+    {
+        return touchedNodes;
+    }
+
+    @Override
+    public void nodeAdded(int id)
+    {
+        if (id >= names.length)
+        {
+            names = Arrays.copyOf(names, names.length * 2);
+            resizeWorkspace();
+        }
+        names[id] = graph.name(id);
+        // trees are grown to the new router count, so fewer of them fit
+        trim();
+        for (Tree tree : trees.values())
+        {
+            tree.grow(names.length);
+        }
+    }
+
+    @Override
+    public void linkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        // A tree that reaches neither end of the link is in another component, which the change leaves as it is.
+        for (Tree tree : trees.values())
+        {
+            if (tree.distance[u] != UNREACHABLE || tree.distance[v] != UNREACHABLE)
+            {
+                repair(tree, u, v, oldWeight, newWeight);
+            }
+        }
+    }
+
+    // Repair the tree after the link u-v changed from oldWeight to newWeight.
+    private void repair(Tree tree, int u, int v, int oldWeight, int newWeight)
+    {
+        repairs++;
+        if (oldWeight == -1 || (newWeight != -1 && newWeight < oldWeight))
+        {
+            // The link got cheaper or appeared: either endpoint may now be reached better through the other one.
+            offer(tree, u, v, newWeight);
+            offer(tree, v, u, newWeight);
+            propagate(tree);
+        }
+        else if (tree.parent[v] == u)
+        {
+            repairSubtree(tree, v);
+        }
+        else if (tree.parent[u] == v)
+        {
+            repairSubtree(tree, u);
+        }
+    }
+
+    // Offer the route to v through w. If it beats the current route of v, v takes it and is queued so the change spreads.
+    private boolean offer(Tree tree, int w, int v, int weight)
+    {
+        if (tree.distance[w] == UNREACHABLE)
+        {
+            return false;
+        }
+        int distance = tree.distance[w] + weight;
+        int hops = tree.hops[w] + 1;
+        int firstHop = w == tree.root ? v : tree.firstHop[w];
+        if (!better(distance, hops, firstHop, tree.distance[v], tree.hops[v], tree.firstHop[v]))
+        {
+            return false;
+        }
+        tree.distance[v] = distance;
+        tree.hops[v] = hops;
+        tree.firstHop[v] = firstHop;
+        tree.parent[v] = w;
+        heap.insertOrDecrease(v, distance, hops);
+        return true;
+    }
+
+    private boolean better(int distance, int hops, int firstHop, int oldDistance, int oldHops, int oldFirstHop)
+    {
+        // routers that are not reached yet have no first hop, but then the distances differ and the names are not read
+        return ShortestPathEngine.better(distance, hops, names[firstHop], oldDistance, oldHops, oldFirstHop < 0 ? null : names[oldFirstHop]);
+    }
+
+    // Settle the queued routers in (distance, hops) order and let each of them offer its route to its neighbours.
+    private void propagate(Tree tree)
+    {
+        while (!heap.isEmpty())
+        {
+            int w = heap.poll();
+            touchedNodes++;
+            for (int i = 0; i < graph.degree(w); i++)
+            {
+                offer(tree, w, graph.target(w, i), graph.weight(w, i));
+            }
+        }
+    }
+
+    // The tree link into top got worse or disappeared, so recompute the routes of top and everything below it.
+    private void repairSubtree(Tree tree, int top)
+    {
+        currentStamp++;
+        int size = 0;
+        subtree[size++] = top;
+        stamp[top] = currentStamp;
+        for (int k = 0; k < size; k++)
+        {
+            int a = subtree[k];
+            for (int i = 0; i < graph.degree(a); i++)
+            {
+                int b = graph.target(a, i);
+                if (tree.parent[b] == a && stamp[b] != currentStamp)
+                {
+                    stamp[b] = currentStamp;
+                    subtree[size++] = b;
+                }
+            }
+        }
+        for (int k = 0; k < size; k++)
+        {
+            tree.reset(subtree[k]);
+        }
+        // Seed every router of the subtree with its best route through a neighbour outside the subtree.
+        for (int k = 0; k < size; k++)
+        {
+            int a = subtree[k];
+            for (int i = 0; i < graph.degree(a); i++)
+            {
+                int b = graph.target(a, i);
+                if (stamp[b] != currentStamp)
+                {
+                    offer(tree, b, a, graph.weight(a, i));
+                }
+            }
+        }
+        propagate(tree);
+    }
+
+    private void resizeWorkspace()
+    {
+        heap = new IndexedDaryHeap(4, names.length, names);
+        stamp = new int[names.length];
+        subtree = new int[names.length];
+        currentStamp = 0;
+    }
+}
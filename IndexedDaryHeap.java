@@ -0,0 +1,210 @@
+import java.util.*;
+
+// Indexed d-ary min-heap over int keys in [0, capacity).
+// Every key is in the heap at most once and its slot is tracked in position[], so a shorter distance found for a
+// queued router is applied in place with decreaseKey instead of queueing a second copy of it.
+// Keys are ordered by priority first, then by hops and then alphabetically by name, the settle order of every SpfQueue.
+// Users that order by priority alone queue every key with the same hops.
+public class IndexedDaryHeap implements SpfQueue
+{
+    private final int arity;
+    private final String[] names;
+    // heap slot -> key
+    private final int[] heap;
+    // key -> heap slot, or -1 when the key is not queued
+    private final int[] position;
+    // key -> current priority and hops
+    private final int[] priority;
+    private final int[] hops;
+    private int size;
+
+    public IndexedDaryHeap(int arity, int capacity, String[] names)
+    {
+        if (arity < 2)
+        {
+            throw new IllegalArgumentException("Heap arity must be at least 2: " + arity);
+        }
+        this.arity = arity;
+        this.names = names;
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.priority = new int[capacity];
+        this.hops = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains(int key)
+    {
+        return position[key] != -1;
+    }
+
+    public int priority(int key)
+    {
+        return priority[key];
+    }
+
+    public void insert(int key, int newPriority)
+    {
+        insert(key, newPriority, 0);
+    }
+
+    public void insert(int key, int newPriority, int newHops)
+    {
+        if (contains(key))
+        {
+            throw new IllegalStateException("Key is already queued: " + key);
+        }
+        priority[key] = newPriority;
+        hops[key] = newHops;
+        heap[size] = key;
+        position[key] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    // Lower the priority or the hops of a queued key and restore the heap order around it.
+    public void decreaseKey(int key, int newPriority, int newHops)
+    {
+        if (newPriority > priority[key] || (newPriority == priority[key] && newHops > hops[key]))
+        {
+            throw new IllegalArgumentException("decreaseKey would increase the priority of key " + key);
+        }
+        priority[key] = newPriority;
+        hops[key] = newHops;
+        siftUp(position[key]);
+    }
+
+    // Queue the key, or lower its priority or hops if it is already queued.
+    public void insertOrDecrease(int key, int newPriority, int newHops)
+    {
+        if (contains(key))
+        {
+            decreaseKey(key, newPriority, newHops);
+        }
+        else
+        {
+            insert(key, newPriority, newHops);
+        }
+    }
+
+    @Override
+    public void push(int key, int newPriority, int newHops)
+    {
+        insertOrDecrease(key, newPriority, newHops);
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int slot = 0; slot < size; slot++)
+        {
+            position[heap[slot]] = -1;
+        }
+        size = 0;
+    }
+
+    // The key poll() would return, without removing it.
+    public int peek()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    // Remove and return the key with the smallest (priority, hops, name).
+    @Override
+    public int poll()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0)
+        {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private boolean less(int a, int b)
+    {
+        if (priority[a] != priority[b])
+        {
+            return priority[a] < priority[b];
+        }
+        if (hops[a] != hops[b])
+        {
+            return hops[a] < hops[b];
+        }
+        return names[a].compareTo(names[b]) < 0;
+    }
+
+    private void siftUp(int slot)
+    {
+        int key = heap[slot];
+        while (slot > 0)
+        {
+            int parentSlot = (slot - 1) / arity;
+            int parent = heap[parentSlot];
+            if (!less(key, parent))
+            {
+                break;
+            }
+            heap[slot] = parent;
+            position[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = key;
+        position[key] = slot;
+    }
+
+    private void siftDown(int slot)
+    {
+        int key = heap[slot];
+        while (true)
+        {
+            int firstChild = slot * arity + 1;
+            if (firstChild >= size)
+            {
+                break;
+            }
+            // pick the smallest of the (up to) arity children
+            int best = firstChild;
+            int lastChild = Math.min(firstChild + arity, size);
+            for (int child = firstChild + 1; child < lastChild; child++)
+            {
+                if (less(heap[child], heap[best]))
+                {
+                    best = child;
+                }
+            }
+            if (!less(heap[best], key))
+            {
+                break;
+            }
+            heap[slot] = heap[best];
+            position[heap[slot]] = slot;
+            slot = best;
+        }
+        heap[slot] = key;
+        position[key] = slot;
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.*;
+
+// SpfQueue over java.util.PriorityQueue, which has no decreaseKey: a router whose distance or hops drop is queued once
+// more and the entries left behind with its old ones are skipped when they come out.
+public class LazyPriorityQueue implements SpfQueue
+{
+    private final PriorityQueue<int[]> queue;
+    // router -> distance and hops of its latest entry
+    private final int[] queued;
+    private final int[] queuedHops;
+    private final boolean[] polled;
+    // routers queued since the last clear(), the ones whose queued and polled entries are set
+    private final int[] touched;
+    private int touchedCount;
+    private int waiting;
+    private int stale;
+
+    public LazyPriorityQueue(int capacity, String[] names)
+    {
+        // entries are {distance, hops, router}, ordered by distance, then by hops and then alphabetically by name
+        this.queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0])
+            : a[1] != b[1] ? Integer.compare(a[1], b[1]) : names[a[2]].compareTo(names[b[2]]));
+        this.queued = new int[capacity];
+        this.queuedHops = new int[capacity];
+        this.polled = new boolean[capacity];
+        this.touched = new int[capacity];
+        Arrays.fill(queued, -1);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return waiting == 0;
+    }
+
+    @Override
+    public void push(int router, int distance, int hops)
+    {
+        if (queued[router] == -1)
+        {
+            waiting++;
+            touched[touchedCount++] = router;
+        }
+        queued[router] = distance;
+        queuedHops[router] = hops;
+        queue.add(new int[] {distance, hops, router});
+    }
+
+    @Override
+    public int poll()
+    {
+        while (true)
+        {
+            int[] entry = queue.poll();
+            int router = entry[2];
+            if (!polled[router] && entry[0] == queued[router] && entry[1] == queuedHops[router])
+            {
+                polled[router] = true;
+                waiting--;
+                return router;
+            }
+            stale++;
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < touchedCount; i++)
+        {
+            queued[touched[i]] = -1;
+            polled[touched[i]] = false;
+        }
+        touchedCount = 0;
+        queue.clear();
+        waiting = 0;
+        stale = 0;
+    }
+
+    @Override
+    public int stalePops()
+    {
+        return stale;
+    }
+}
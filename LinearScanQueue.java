@@ -0,0 +1,78 @@
+import java.util.*;
+
+// SpfQueue that finds the next router by scanning every waiting router, which is the O(n^2) Dijkstra from lecture.
+// The waiting routers are packed at the front of an array, so removing one is a swap with the last one instead of a
+// list removal.
+public class LinearScanQueue implements SpfQueue
+{
+    private final String[] names;
+    private final int[] waiting;
+    // router -> index in waiting, or -1 when the router is not waiting
+    private final int[] slot;
+    private final int[] priority;
+    private final int[] hops;
+    private int count;
+
+    public LinearScanQueue(int capacity, String[] names)
+    {
+        this.names = names;
+        this.waiting = new int[capacity];
+        this.slot = new int[capacity];
+        this.priority = new int[capacity];
+        this.hops = new int[capacity];
+        Arrays.fill(slot, -1);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    @Override
+    public void push(int router, int distance, int hops)
+    {
+        if (slot[router] == -1)
+        {
+            slot[router] = count;
+            waiting[count++] = router;
+        }
+        priority[router] = distance;
+        this.hops[router] = hops;
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < count; i++)
+        {
+            slot[waiting[i]] = -1;
+        }
+        count = 0;
+    }
+
+    // Find the router with minimum routing distance among the waiting routers
+    @Override
+    public int poll()
+    {
+        int best = 0;
+        for (int i = 1; i < count; i++)
+        {
+            int u = waiting[i];
+            int b = waiting[best];
+            // if multiple least cost paths exist to select from in an iteration, select the one with the least hops, and
+            // among those always the first one in alphabetical order
+            if (priority[u] != priority[b] ? priority[u] < priority[b]
+                : hops[u] != hops[b] ? hops[u] < hops[b] : names[u].compareTo(names[b]) < 0)
+            {
+                best = i;
+            }
+        }
+        int router = waiting[best];
+        int last = waiting[--count];
+        waiting[best] = last;
+        slot[last] = best;
+        slot[router] = -1;
+        return router;
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.*;
+
+// Link-state database of every component, kept sorted as the topology changes.
+// Each component root owns a sorted set of its links, ordered the way the LSDB is printed: by the alphabetically
+// smaller endpoint and then by the other one. Adding, updating or removing a link is a single O(log n) set operation,
+// so printing an LSDB is an in-order scan of its set with no sorting. When two components join, the links of the
+// smaller one move into the set of the larger one. When a component splits, its links are shared out between the two halves.
+public class LinkStateIndex
+{
+    // One undirected link, named the way the LSDB prints it. Links are immutable, a new weight is a new link.
+    public static final class Link implements Comparable<Link>
+    {
+        // endpoint ids, and their names with from < to alphabetically
+        final int fromId;
+        final int toId;
+        final String from;
+        final String to;
+        final int weight;
+
+        Link(int u, int v, String uName, String vName, int weight)
+        {
+            boolean ordered = uName.compareTo(vName) < 0;
+            this.fromId = ordered ? u : v;
+            this.toId = ordered ? v : u;
+            this.from = ordered ? uName : vName;
+            this.to = ordered ? vName : uName;
+            this.weight = weight;
+        }
+
+        public String from()
+        {
+            return from;
+        }
+
+        public String to()
+        {
+            return to;
+        }
+
+        public int weight()
+        {
+            return weight;
+        }
+
+        // Links are the same if they join the same routers, whatever their weight.
+        @Override
+        public int compareTo(Link other)
+        {
+            int c = from.compareTo(other.from);
+            return c != 0 ? c : to.compareTo(other.to);
+        }
+    }
+
+    // component root -> its links, null for a component without links
+    private TreeSet<Link>[] links;
+
+    @SuppressWarnings("unchecked")
+    public LinkStateIndex(int capacity)
+    {
+        links = (TreeSet<Link>[]) new TreeSet<?>[capacity];
+    }
+
+    // Sorted links of the component with this root. The set must not be changed by the caller.
+    public NavigableSet<Link> links(int root)
+    {
+        NavigableSet<Link> set = root < links.length ? links[root] : null;
+        return set == null ? Collections.emptyNavigableSet() : set;
+    }
+
+    // Add the link to the component with this root, replacing the link between the same routers if there is one.
+    public void put(int root, Link link)
+    {
+        TreeSet<Link> set = open(root);
+        set.remove(link);
+        set.add(link);
+    }
+
+    // Sorted set of links in any order, built the way load() builds one
+    public static NavigableSet<Link> sorted(List<Link> links)
+    {
+        Collections.sort(links);
+        return new TreeSet<>(new SortedLinks(links));
+    }
+
+    // Fill the empty set of the component with this root from links that are already in LSDB order.
+    // The set is built in one linear pass instead of one O(log n) insertion per link.
+    public void load(int root, List<Link> sorted)
+    {
+        grow(root);
+        if (links[root] != null && !links[root].isEmpty())
+        {
+            throw new IllegalStateException("Component " + root + " already has links");
+        }
+        links[root] = new TreeSet<>(new SortedLinks(sorted));
+    }
+
+    public void remove(int root, Link link)
+    {
+        TreeSet<Link> set = root < links.length ? links[root] : null;
+        if (set != null)
+        {
+            set.remove(link);
+        }
+    }
+
+    // The components with roots a and b were joined into the component with root joined, which is one of the two.
+    public void merge(int a, int b, int joined)
+    {
+        int absorbed = joined == a ? b : a;
+        TreeSet<Link> moving = absorbed < links.length ? links[absorbed] : null;
+        if (moving == null)
+        {
+            return;
+        }
+        links[absorbed] = null;
+        TreeSet<Link> kept = open(joined);
+        if (kept.size() < moving.size())
+        {
+            // keep the bigger tree and add the smaller one to it
+            moving.addAll(kept);
+            links[joined] = moving;
+        }
+        else
+        {
+            kept.addAll(moving);
+        }
+    }
+
+    // The component that had root oldRoot split in two, rootA and rootB are the roots of the halves.
+    public void split(int oldRoot, int rootA, int rootB, ComponentIndex components)
+    {
+        TreeSet<Link> set = oldRoot < links.length ? links[oldRoot] : null;
+        links[oldRoot] = null;
+        if (set == null || set.isEmpty())
+        {
+            return;
+        }
+        // Both endpoints of a link stay in the same half, so the side of its first endpoint decides where it goes.
+        // The set is kept for the half that holds its first link, and the links of the other half are moved out.
+        int keptRoot = components.root(set.first().fromId);
+        int movedRoot = keptRoot == rootA ? rootB : rootA;
+        TreeSet<Link> moved = new TreeSet<>();
+        Iterator<Link> iterator = set.iterator();
+        while (iterator.hasNext())
+        {
+            Link link = iterator.next();
+            if (components.root(link.fromId) == movedRoot)
+            {
+                moved.add(link);
+                iterator.remove();
+            }
+        }
+        grow(Math.max(rootA, rootB));
+        links[keptRoot] = set;
+        links[movedRoot] = moved.isEmpty() ? null : moved;
+    }
+
+    // Read-only SortedSet over a list that is in LSDB order. A TreeSet made from a SortedSet takes its elements in one
+    // linear pass, which is what sorted() and load() make it for. Ranges are binary searched into views of the list.
+    private static final class SortedLinks extends AbstractSet<Link> implements SortedSet<Link>
+    {
+        private final List<Link> links;
+
+        SortedLinks(List<Link> links)
+        {
+            this.links = links;
+        }
+
+        @Override
+        public Iterator<Link> iterator()
+        {
+            return Collections.unmodifiableList(links).iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return links.size();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof Link && Collections.binarySearch(links, (Link) o) >= 0;
+        }
+
+        @Override
+        public Comparator<? super Link> comparator()
+        {
+            return null;
+        }
+
+        @Override
+        public Link first()
+        {
+            if (links.isEmpty())
+            {
+                throw new NoSuchElementException();
+            }
+            return links.get(0);
+        }
+
+        @Override
+        public Link last()
+        {
+            if (links.isEmpty())
+            {
+                throw new NoSuchElementException();
+            }
+            return links.get(links.size() - 1);
+        }
+
+        @Override
+        public SortedSet<Link> subSet(Link fromElement, Link toElement)
+        {
+            if (fromElement.compareTo(toElement) > 0)
+            {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return new SortedLinks(links.subList(lowerBound(fromElement), lowerBound(toElement)));
+        }
+
+        @Override
+        public SortedSet<Link> headSet(Link toElement)
+        {
+            return new SortedLinks(links.subList(0, lowerBound(toElement)));
+        }
+
+        @Override
+        public SortedSet<Link> tailSet(Link fromElement)
+        {
+            return new SortedLinks(links.subList(lowerBound(fromElement), links.size()));
+        }
+
+        // Index of the first link that is not before link
+        private int lowerBound(Link link)
+        {
+            int i = Collections.binarySearch(links, Objects.requireNonNull(link));
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    private TreeSet<Link> open(int root)
+    {
+        grow(root);
+        if (links[root] == null)
+        {
+            links[root] = new TreeSet<>();
+        }
+        return links[root];
+    }
+
+    private void grow(int root)
+    {
+        if (root >= links.length)
+        {
+            links = Arrays.copyOf(links, Math.max(root + 1, links.length * 2));
+        }
+    }
+}
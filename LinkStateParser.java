@@ -0,0 +1,568 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Byte-level reader for the router / LINKSTATE / UPDATE / END input format.
+// Input is read either from a memory-mapped file, one window at a time, or from stdin through one large reusable buffer.
+// nextLine() moves to the next line and splits it in place into its fields, so a link line "A-B 4 A,C" is kept as
+// byte ranges and a parsed weight. Router names are looked up in a byte-keyed table that caches the interned id of
+// every router seen so far, so a String is only built the first time a router shows up.
+// A line "QUERY S D" asks for the route from router S to router D instead of changing a link, see isQuery().
+// At the end of the input nextLine() returns false, so a missing END keyword just ends the input.
+public class LinkStateParser implements Closeable
+{
+    private static final int STDIN_BUFFER = 1 << 20;
+    private static final int MAP_WINDOW = 1 << 26;
+
+    public static final byte[] LINKSTATE = "LINKSTATE".getBytes(StandardCharsets.US_ASCII);
+    public static final byte[] UPDATE = "UPDATE".getBytes(StandardCharsets.US_ASCII);
+    public static final byte[] END = "END".getBytes(StandardCharsets.US_ASCII);
+    public static final byte[] QUERY = "QUERY".getBytes(StandardCharsets.US_ASCII);
+
+    private final CsrGraph graph;
+
+    // input, either a mapped window of the file or the stdin buffer, valid over [0, limit)
+    private final FileChannel file;
+    private final ReadableByteChannel in;
+    private ByteBuffer buffer;
+    // input offset of buffer[0]
+    private long bufferStart;
+    private int limit;
+    private boolean exhausted;
+
+    // current line [lineStart, lineEnd) and where the next one starts
+    private int lineStart;
+    private int lineEnd;
+    private int next;
+
+    // fields of the current line as byte ranges
+    private int sourceStart;
+    private int sourceEnd;
+    private int destinationStart;
+    private int destinationEnd;
+    private int weight;
+    private boolean badWeight;
+    private int routesStart;
+    private int routesEnd;
+    // set for a "QUERY S D" line, whose source and destination are S and D
+    private boolean query;
+
+    // flushed before stdin is read, see flushBeforeRead()
+    private Flushable beforeRead;
+
+    // name bytes -> router id, open addressing over ids + 1 so that 0 is an empty slot
+    private int[] slots = new int[1024];
+    private byte[][] keys = new byte[256][];
+    private int keyCount;
+
+    private LinkStateParser(CsrGraph graph, FileChannel file, ReadableByteChannel in)
+    {
+        this.graph = graph;
+        this.file = file;
+        this.in = in;
+    }
+
+    // Map the file at path, reading it window by window.
+    public static LinkStateParser open(Path path, CsrGraph graph) throws IOException
+    {
+        LinkStateParser parser = new LinkStateParser(graph, FileChannel.open(path, StandardOpenOption.READ), null);
+        parser.buffer = ByteBuffer.allocate(0);
+        return parser;
+    }
+
+    // Read the stream through one reusable buffer.
+    public static LinkStateParser open(InputStream stream, CsrGraph graph)
+    {
+        LinkStateParser parser = new LinkStateParser(graph, null, Channels.newChannel(stream));
+        parser.buffer = ByteBuffer.allocate(STDIN_BUFFER);
+        return parser;
+    }
+
+    // The input file is the first argument that is not an option, stdin is read when there is none.
+    public static LinkStateParser fromArgs(String[] args, CsrGraph graph) throws IOException
+    {
+        for (String arg : args)
+        {
+            if (!arg.startsWith("--"))
+            {
+                return open(Paths.get(arg), graph);
+            }
+        }
+        return open(System.in, graph);
+    }
+
+    // Flush output before every read from stdin, which can wait for as long as the input pauses, so that the tables
+    // printed so far reach the reader in the meantime. A mapped file never waits, and its output is not flushed here.
+    public void flushBeforeRead(Flushable output)
+    {
+        beforeRead = output;
+    }
+
+    // Move to the next line. Returns false at the end of the input.
+    public boolean nextLine() throws IOException
+    {
+        int scan = next;
+        while (true)
+        {
+            while (scan < limit && buffer.get(scan) != '\n')
+            {
+                scan++;
+            }
+            if (scan < limit || exhausted)
+            {
+                break;
+            }
+            // The line runs past the end of the buffer, so bring in more input keeping the part read so far.
+            int shift = refill();
+            scan -= shift;
+        }
+        if (next >= limit && exhausted)
+        {
+            return false;
+        }
+        lineStart = next;
+        lineEnd = scan;
+        next = scan < limit ? scan + 1 : scan;
+        // the line break may be \r\n
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r')
+        {
+            lineEnd--;
+        }
+        split();
+        return true;
+    }
+
+    // Input offset where the next line starts
+    public long offset()
+    {
+        return bufferStart + next;
+    }
+
+    // Continue reading at the given input offset, which must be the start of a line at or after offset().
+    // A file is mapped from there, stdin is read up to there and the bytes in between are dropped.
+    public void skipTo(long offset) throws IOException
+    {
+        if (file != null)
+        {
+            bufferStart = offset;
+            limit = 0;
+            next = 0;
+            exhausted = offset >= file.size();
+            return;
+        }
+        while (bufferStart + limit < offset && !exhausted)
+        {
+            next = limit;
+            refill();
+        }
+        next = (int) Math.min(limit, offset - bufferStart);
+    }
+
+    // Whether the whole current line is the keyword
+    public boolean lineEquals(byte[] keyword)
+    {
+        if (lineEnd - lineStart != keyword.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++)
+        {
+            if (buffer.get(lineStart + i) != keyword[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The current line read as a router name, added to the topology if it is new. Returns its id.
+    public int addRouter()
+    {
+        return add(lineStart, lineEnd);
+    }
+
+    // Id of the source router of the current link line, or -1 if the router is not in the topology yet.
+    public int source()
+    {
+        return lookup(sourceStart, sourceEnd);
+    }
+
+    public int destination()
+    {
+        return lookup(destinationStart, destinationEnd);
+    }
+
+    // Id of the source router, adding it to the topology if it is new.
+    public int addSource()
+    {
+        return add(sourceStart, sourceEnd);
+    }
+
+    public int addDestination()
+    {
+        return add(destinationStart, destinationEnd);
+    }
+
+    public int weight()
+    {
+        if (badWeight)
+        {
+            throw new NumberFormatException("Bad link weight in line: " + name(lineStart, lineEnd));
+        }
+        return weight;
+    }
+
+    // Whether the current line is "QUERY S D", a route query from source S to destination D
+    public boolean isQuery()
+    {
+        return query;
+    }
+
+    // Names of the source and destination routers of the current line, whether or not they are in the topology
+    public String sourceName()
+    {
+        return routerName(sourceStart, sourceEnd);
+    }
+
+    public String destinationName()
+    {
+        return routerName(destinationStart, destinationEnd);
+    }
+
+    // Whether the current link line names routers whose tables should be printed
+    public boolean hasRoutes()
+    {
+        return routesEnd > routesStart;
+    }
+
+    // Routers named at the end of the current link line, in line order
+    public String[] routes()
+    {
+        int count = 1;
+        for (int i = routesStart; i < routesEnd; i++)
+        {
+            if (buffer.get(i) == ',')
+            {
+                count++;
+            }
+        }
+        String[] routes = new String[count];
+        int start = routesStart;
+        int k = 0;
+        for (int i = routesStart; i <= routesEnd; i++)
+        {
+            if (i == routesEnd || buffer.get(i) == ',')
+            {
+                routes[k++] = routerName(start, i);
+                start = i + 1;
+            }
+        }
+        return routes;
+    }
+
+    // The interned name of a known router, so no String is built for it
+    private String routerName(int start, int end)
+    {
+        int id = lookup(start, end);
+        return id != -1 ? graph.name(id) : name(start, end);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (file != null)
+        {
+            file.close();
+        }
+    }
+
+    // Split "source-destination weight [routes]" into its fields. Lines that are not link lines leave them empty.
+    private void split()
+    {
+        sourceStart = sourceEnd = destinationStart = destinationEnd = routesStart = routesEnd = lineStart;
+        weight = 0;
+        badWeight = false;
+        query = isQueryLine();
+        if (query)
+        {
+            // "QUERY S D": the two names after the keyword are the source and the destination
+            sourceStart = skipSpaces(lineStart + QUERY.length);
+            sourceEnd = token(sourceStart);
+            destinationStart = skipSpaces(sourceEnd);
+            destinationEnd = token(destinationStart);
+            return;
+        }
+        int i = lineStart;
+        while (i < lineEnd && buffer.get(i) != '-' && buffer.get(i) != ' ')
+        {
+            i++;
+        }
+        sourceEnd = i;
+        if (i < lineEnd && buffer.get(i) == '-')
+        {
+            i++;
+        }
+        destinationStart = i;
+        while (i < lineEnd && buffer.get(i) != ' ')
+        {
+            i++;
+        }
+        destinationEnd = i;
+        i = skipSpaces(i);
+        boolean negative = i < lineEnd && buffer.get(i) == '-';
+        if (negative)
+        {
+            i++;
+        }
+        // Digits are summed in a long that stops growing once past any int, and a weight outside the int range is bad,
+        // as it was for Integer.parseInt, instead of wrapping around.
+        long value = 0;
+        int digitsStart = i;
+        while (i < lineEnd && buffer.get(i) != ' ')
+        {
+            byte b = buffer.get(i++);
+            if (b < '0' || b > '9')
+            {
+                badWeight = true;
+            }
+            else if (value <= Integer.MAX_VALUE + 1L)
+            {
+                value = value * 10 + (b - '0');
+            }
+        }
+        badWeight |= value > (negative ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE);
+        weight = (int) (negative ? -value : value);
+        badWeight |= i == digitsStart;
+        i = skipSpaces(i);
+        routesStart = i;
+        while (i < lineEnd && buffer.get(i) != ' ')
+        {
+            i++;
+        }
+        routesEnd = i;
+    }
+
+    private boolean isQueryLine()
+    {
+        if (lineEnd - lineStart <= QUERY.length || buffer.get(lineStart + QUERY.length) != ' ')
+        {
+            return false;
+        }
+        for (int i = 0; i < QUERY.length; i++)
+        {
+            if (buffer.get(lineStart + i) != QUERY[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // End of the field that starts at i
+    private int token(int i)
+    {
+        while (i < lineEnd && buffer.get(i) != ' ')
+        {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipSpaces(int i)
+    {
+        while (i < lineEnd && buffer.get(i) == ' ')
+        {
+            i++;
+        }
+        return i;
+    }
+
+    // Id of the router named by the bytes [start, end), looked up without building a String once it has been seen.
+    private int lookup(int start, int end)
+    {
+        int hash = hash(start, end);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int id = slots[slot] - 1;
+            if (sameName(keys[id], start, end))
+            {
+                return id;
+            }
+        }
+        // Not seen by this parser yet, it may still have been added to the topology some other way.
+        int id = graph.id(name(start, end));
+        if (id != -1)
+        {
+            remember(id, start, end, hash);
+        }
+        return id;
+    }
+
+    private int add(int start, int end)
+    {
+        int id = lookup(start, end);
+        if (id == -1)
+        {
+            id = graph.addNode(name(start, end));
+            remember(id, start, end, hash(start, end));
+        }
+        return id;
+    }
+
+    private void remember(int id, int start, int end, int hash)
+    {
+        if (id >= keys.length)
+        {
+            keys = Arrays.copyOf(keys, Math.max(id + 1, keys.length * 2));
+        }
+        byte[] key = new byte[end - start];
+        for (int i = 0; i < key.length; i++)
+        {
+            key[i] = buffer.get(start + i);
+        }
+        keys[id] = key;
+        keyCount++;
+        if (keyCount * 2 > slots.length)
+        {
+            rehash();
+        }
+        else
+        {
+            insert(id, hash);
+        }
+    }
+
+    private void insert(int id, int hash)
+    {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private void rehash()
+    {
+        slots = new int[slots.length * 2];
+        for (int id = 0; id < keys.length; id++)
+        {
+            if (keys[id] != null)
+            {
+                insert(id, hash(keys[id]));
+            }
+        }
+    }
+
+    private boolean sameName(byte[] key, int start, int end)
+    {
+        if (key.length != end - start)
+        {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++)
+        {
+            if (key[i] != buffer.get(start + i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the name bytes, spread so that linear probing on the low bits works well
+    private int hash(int start, int end)
+    {
+        int h = 0x811c9dc5;
+        for (int i = start; i < end; i++)
+        {
+            h = (h ^ buffer.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(byte[] key)
+    {
+        int h = 0x811c9dc5;
+        for (byte b : key)
+        {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // Only done for routers seen for the first time and for printed routers that are not in the topology.
+    private String name(int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Bring in more input after the bytes still unread, from next on. Returns how far those bytes moved down.
+    private int refill() throws IOException
+    {
+        int kept = limit - next;
+        if (file != null)
+        {
+            long start = bufferStart + next;
+            long remaining = file.size() - start;
+            // a window always holds the unread part plus at least as much again, so one long line cannot stall it
+            long size = Math.min(remaining, Math.max(MAP_WINDOW, 2L * kept + 1));
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, start, size);
+            bufferStart = start;
+            limit = (int) size;
+            exhausted = start + size >= file.size();
+        }
+        else
+        {
+            if (kept == buffer.capacity())
+            {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.limit(limit);
+                buffer.position(next);
+                larger.put(buffer);
+                buffer = larger;
+            }
+            else
+            {
+                buffer.limit(limit);
+                buffer.position(next);
+                buffer.compact();
+            }
+            if (beforeRead != null)
+            {
+                beforeRead.flush();
+            }
+            // buffer position is now at the end of the kept bytes
+            int read = in.read(buffer);
+            while (read == 0)
+            {
+                read = in.read(buffer);
+            }
+            if (read < 0)
+            {
+                exhausted = true;
+            }
+            limit = buffer.position();
+            buffer.clear();
+        }
+        int shift = next;
+        if (file == null)
+        {
+            bufferStart += shift;
+        }
+        lineStart -= shift;
+        lineEnd -= shift;
+        next = 0;
+        return shift;
+    }
+}
@@ -0,0 +1,581 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Shared core of the link-state routing programs: the topology, the neighbour, LSDB and routing tables, and the loop
+// that reads the router / LINKSTATE / UPDATE / END input and prints the tables the input asks for.
+// Routing tables come from a ShortestPathEngine, so Dijkstra and DijkstraNlogN are this program with different default
+// engines, and --engine=NAME picks any engine in either of them.
+public class LinkStateRouter
+{
+    public CsrGraph graph;
+    // Computes the routing tables
+    protected final ShortestPathEngine engine;
+    // Answers the route queries
+    protected final BidirectionalDijkstra routes;
+    // Answers them instead when set, from a contraction hierarchy of graph
+    protected RouteHierarchy hierarchy;
+    // Routers that learn the UPDATE section by flooding, when set
+    protected RouterSimulation simulation;
+    // Times the tables and input lines and counts the work of every SPF run, when set
+    protected SpfMetrics metrics;
+    // Input offset of the last UPDATE line of the open hold-down window, or -1, and what failed closing a window on the
+    // hold-down timer, which the input loop then throws
+    private long windowOffset = -1;
+    private volatile Exception windowFailure;
+
+    // Constructor to initialize the topology
+    public LinkStateRouter(ShortestPathEngine engine)
+    {
+        this.graph = new CsrGraph();
+        this.engine = engine;
+        this.routes = new BidirectionalDijkstra();
+    }
+
+    public void neighbourTable(String route)
+    {
+        TableWriter out = TableWriter.stdout();
+        neighbourTable(route, graph, out);
+        out.flush();
+    }
+
+    public void neighbourTable(String route, CsrGraph graph, TableWriter out)
+    {
+        long start = metrics == null ? 0 : System.nanoTime();
+        out.text(route).line(" Neighbour Table:");
+        int u = graph.id(route);
+
+        // Adjacency rows are kept ordered by name, which is already the order of the expected output in Myuni.
+        for (int i = 0, degree = graph.degree(u); i < degree; i++)
+        {
+            out.text(graph.name(graph.target(u, i))).bar().number(graph.weight(u, i)).newLine();
+        }
+        out.newLine();
+        if (metrics != null)
+        {
+            metrics.record(SpfMetrics.Operation.NEIGHBOUR_TABLE, route, graph.degree(u), start);
+        }
+    }
+
+    public NavigableSet<LinkStateIndex.Link> lsDatabase(String route)
+    { 
+        NavigableSet<LinkStateIndex.Link> sortedLSDB = computeLsDatabase(route, graph);
+        TableWriter out = TableWriter.stdout();
+        printLsDatabase(route, sortedLSDB, out);
+        out.flush();
+        return sortedLSDB;
+    }
+
+    public NavigableSet<LinkStateIndex.Link> computeLsDatabase(String route, CsrGraph graph)
+    {
+        // The LSDB holds every link of the router's component. The topology keeps those links already sorted
+        // alphabetically for each component, so there is nothing to search or sort here.
+        return graph.linkStates(graph.id(route));
+    }
+
+    public void printLsDatabase(String route, Collection<LinkStateIndex.Link> sortedLSDB, TableWriter out)
+    {
+        long start = metrics == null ? 0 : System.nanoTime();
+        out.text(route).line(" LSDB:");
+        for (LinkStateIndex.Link link : sortedLSDB)
+        {
+            out.text(link.from()).bar().text(link.to()).bar().number(link.weight()).newLine();
+        }
+        out.newLine();
+        if (metrics != null)
+        {
+            metrics.record(SpfMetrics.Operation.LS_DATABASE, route, sortedLSDB.size(), start);
+        }
+    }
+
+    public void routingTable (String router, CsrGraph graph)
+    {
+        TableWriter out = TableWriter.stdout();
+        out.text(router).line(" Routing Table:");
+        // Print it out
+        printOut(computeRoutingTable(router, graph), out);
+        out.flush();
+    }
+
+    // Rows {destination, next hop, distance} of every router the router reaches, sorted by destination.
+    public List<String[]> computeRoutingTable(String router, CsrGraph graph)
+    {
+        if (metrics == null)
+        {
+            return engine.routingTable(router, graph);
+        }
+        long start = System.nanoTime();
+        ShortestPathEngine.Counters counters = new ShortestPathEngine.Counters();
+        List<String[]> rows = engine.routingTable(router, graph, counters);
+        metrics.spf(router, rows.size(), counters, start);
+        return rows;
+    }
+
+    // Write the rows of computeRoutingTable() to out without keeping them, which spares the rows themselves.
+    public void writeRoutingTable(String router, CsrGraph graph, TableWriter out)
+    {
+        if (metrics == null)
+        {
+            engine.writeRoutingTable(router, graph, out, null);
+            return;
+        }
+        long start = System.nanoTime();
+        ShortestPathEngine.Counters counters = new ShortestPathEngine.Counters();
+        int rows = engine.writeRoutingTable(router, graph, out, counters);
+        metrics.spf(router, rows, counters, start);
+    }
+
+    // Row {destination, next hop, distance} of the route from source to destination, the row the routing table of the
+    // source has for the destination, or null if it has none.
+    public String[] computeRoute(String source, String destination, CsrGraph graph)
+    {
+        long start = metrics == null ? 0 : System.nanoTime();
+        String[] row = hierarchy != null ? hierarchy.route(source, destination) : routes.route(source, destination, graph);
+        if (metrics != null)
+        {
+            metrics.record(SpfMetrics.Operation.ROUTE, source, row == null ? 0 : 1, start);
+        }
+        return row;
+    }
+
+    // Print the route asked for by a "QUERY source destination" line, with - for the next hop and distance when the
+    // destination cannot be reached.
+    public void printRoute(String source, String destination, CsrGraph graph, TableWriter out)
+    {
+        out.text(source).text(" Route to ").text(destination).line(":");
+        String[] row = computeRoute(source, destination, graph);
+        if (row == null)
+        {
+            out.text(destination).bar().text("-").bar().text("-").newLine();
+        }
+        else
+        {
+            out.text(row[0]).bar().text(row[1]).bar().text(row[2]).newLine();
+        }
+        out.newLine();
+    }
+
+    // Print the neighbour table, LSDB and routing table of the router for one query.
+    // The routing table comes from the kept shortest path tree when the incremental SPF mode is on, otherwise from a full SPF.
+    // With a cache, the routing table is reused for as long as no change has touched the router's part of the topology.
+    // Without either, nothing is kept, and the routing table is written straight from the SPF run.
+    public void printTables(String route, CsrGraph graph, IncrementalSpf incrementalSpf, RoutingTableCache cache, TableWriter out)
+    {
+        neighbourTable(route, graph, out);
+        if (cache == null && incrementalSpf == null)
+        {
+            printLsDatabase(route, computeLsDatabase(route, graph), out);
+            out.text(route).line(" Routing Table:");
+            writeRoutingTable(route, graph, out);
+            out.newLine();
+            return;
+        }
+        printLsDatabase(route, computeLsDatabase(route, graph), out);
+        long start = metrics == null ? 0 : System.nanoTime();
+        RoutingTableCache.Entry entry = cache == null ? null : cache.get(route);
+        if (entry != null)
+        {
+            if (metrics != null)
+            {
+                metrics.record(SpfMetrics.Operation.CACHED_TABLE, route, entry.routes.size(), start);
+            }
+        }
+        else
+        {
+            List<String[]> routes;
+            if (incrementalSpf == null)
+            {
+                routes = computeRoutingTable(route, graph);
+            }
+            else
+            {
+                routes = incrementalSpf.routes(graph.id(route));
+                if (metrics != null)
+                {
+                    metrics.record(SpfMetrics.Operation.INCREMENTAL_TABLE, route, routes.size(), start);
+                }
+            }
+            entry = new RoutingTableCache.Entry(routes);
+            if (cache != null)
+            {
+                cache.put(route, entry);
+            }
+        }
+        out.text(route).line(" Routing Table:");
+        printOut(entry.routes, out);
+    }
+    // Print the tables of every router named on one input line, in line order.
+    public void printRoutes(String[] routes, IncrementalSpf incrementalSpf, RoutingTableCache cache, ParallelTables parallel, TableWriter out)
+    {
+        // In simulation mode every router prints the tables of its own view of the topology, once the change is flooded.
+        // With --simulate=spf the routing table is checked against the one the router's own SPF run computed.
+        if (simulation != null)
+        {
+            simulation.converge();
+            for (String route : routes)
+            {
+                int id = graph.id(route);
+                if (id != -1)
+                {
+                    simulation.checkRoutingTable(id);
+                }
+                printTables(route, id == -1 ? graph : simulation.view(id), null, null, out);
+            }
+            return;
+        }
+        // In parallel mode the routers of one line are computed at the same time against a snapshot of the topology,
+        // with full SPF runs since the incremental trees are not shared between threads.
+        if (parallel != null && routes.length > 1)
+        {
+            parallel.print(routes, graph, (route, snapshot, buffer) -> printTables(route, snapshot, null, cache, buffer), out);
+        }
+        else
+        {
+            for (String route : routes)
+            {
+                printTables(route, graph, incrementalSpf, cache, out);
+            }
+        }
+    }
+    // Print out final routing table
+    public void printOut(List<String[]> result, TableWriter out)
+    {
+        for (String[] s : result)
+        {
+            out.text(s[0]).bar().text(s[1]).bar().text(s[2]).newLine();
+        }
+        out.newLine();
+    }
+
+    // Start of an input line's APPLY time, taken before the line is read so that reading and parsing it count
+    private long lineStart()
+    {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    // Close the hold-down window if its time is up: print what it asked for and, in durable mode, mark its lines as applied.
+    private void closeDueWindow(SpfHoldDown holdDown, IncrementalSpf incrementalSpf, RoutingTableCache cache, ParallelTables parallel,
+        TopologyJournal journal, TableWriter out) throws IOException
+    {
+        if (!holdDown.due())
+        {
+            return;
+        }
+        printWindow(holdDown, incrementalSpf, cache, parallel, out);
+        if (journal != null && windowOffset != -1)
+        {
+            journal.commit(windowOffset, TopologyJournal.UPDATE);
+        }
+        windowOffset = -1;
+    }
+
+    // Apply the link changes of an SPF hold-down window and print what it asked for: the tables of every router named
+    // in it, then the route of every QUERY line, against the topology at the end of the window.
+    private void printWindow(SpfHoldDown holdDown, IncrementalSpf incrementalSpf, RoutingTableCache cache, ParallelTables parallel, TableWriter out)
+    {
+        holdDown.apply(graph);
+        String[] routers = holdDown.pendingRouters();
+        if (routers.length > 0)
+        {
+            printRoutes(routers, incrementalSpf, cache, parallel, out);
+        }
+        for (List<String> query : holdDown.pendingQueries())
+        {
+            printRoute(query.get(0), query.get(1), graph, out);
+        }
+        holdDown.closeWindow();
+    }
+
+    // In durable mode, mark the input line just read as applied.
+    private static void commit(TopologyJournal journal, LinkStateParser parser, int section) throws IOException
+    {
+        if (journal != null)
+        {
+            journal.commit(parser.offset(), section);
+        }
+    }
+
+    // Read the input named in args, or stdin, print the tables it asks for and save the final topology to topologyFile.
+    public void run(String[] args, String topologyFile)
+    {
+        // --durable=DIR keeps a checkpoint and a journal of the topology in DIR, and a restarted run continues from them.
+        TopologyJournal journal = TopologyJournal.fromArgs(args);
+        if (journal != null)
+        {
+            try
+            {
+                graph = journal.restore();
+            }
+            catch (IOException e)
+            {
+                System.out.println(e);
+                return;
+            }
+        }
+
+        // --cache[=N] keeps the routing tables of printed routers, up to N rows in all, until a change reaches their component.
+        RoutingTableCache cache = RoutingTableCache.fromArgs(args, graph);
+        // --parallel[=N] computes the tables of the routers named on one line at the same time.
+        ParallelTables parallel = ParallelTables.fromArgs(args);
+        // --hierarchy answers the QUERY lines from a contraction hierarchy, built again only when a change needs it.
+        hierarchy = RouteHierarchy.fromArgs(args, graph);
+        // --spf-hold=INITIAL,HOLD,MAX collects the UPDATE lines into windows and prints each table asked for once a window.
+        SpfHoldDown holdDown = SpfHoldDown.fromArgs(args);
+        // --metrics[=FILE] times the tables and input lines and counts the work of every SPF run, summed up at END.
+        metrics = SpfMetrics.fromArgs(args);
+        // Tables are formatted into one buffer that is written out in large chunks.
+        TableWriter out = TableWriter.stdout();
+
+        // The input is parsed straight from bytes, from a memory-mapped file when one is named in args and from stdin otherwise.
+        // Input that stops before "END" is treated as if it ended there.
+        try (LinkStateParser parser = LinkStateParser.fromArgs(args, graph))
+        {
+            // Piped or interactive stdin can pause at any line, so what was printed is written out before waiting for more.
+            // The hold-down timer writes to out too, under the window's lock.
+            parser.flushBeforeRead(holdDown == null ? out : () -> {
+                synchronized (holdDown)
+                {
+                    out.flush();
+                }
+            });
+            // A restarted durable run skips the input its checkpoint and journal already cover, and starts in the section it stopped in.
+            int section = TopologyJournal.ROUTERS;
+            if (journal != null)
+            {
+                section = journal.section();
+                parser.skipTo(journal.inputOffset());
+            }
+
+            if (section == TopologyJournal.ROUTERS)
+            {
+                while (parser.nextLine() && !parser.lineEquals(LinkStateParser.LINKSTATE))
+                {
+                    // Just read the router names and add them into the topology.
+                    // We assume all routers will appear in the edges part
+                    parser.addRouter();
+                    commit(journal, parser, TopologyJournal.ROUTERS);
+                }
+                // the section only changes once its keyword has been read, not when the input stops early
+                if (parser.lineEquals(LinkStateParser.LINKSTATE))
+                {
+                    commit(journal, parser, TopologyJournal.LINKSTATE);
+                }
+            }
+
+            if (section <= TopologyJournal.LINKSTATE)
+            {
+                // Read edges until "UPDATE" keyword. A line is timed from before it is read.
+                for (long start = lineStart(); parser.nextLine() && !parser.lineEquals(LinkStateParser.UPDATE); start = lineStart())
+                {
+                    // "QUERY S D" prints the route from S to D and leaves the topology as it is
+                    if (parser.isQuery())
+                    {
+                        printRoute(parser.sourceName(), parser.destinationName(), graph, out);
+                        commit(journal, parser, TopologyJournal.LINKSTATE);
+                        continue;
+                    }
+                    int source = parser.source();
+                    int destination = parser.destination();
+                    int weight = parser.weight();
+
+                    // based on the provided link state, we need to build our graph by the following add/remove method.
+                    if (weight == -1) 
+                    {
+                        // there can be no link to remove if either router is unknown
+                        if (source != -1 && destination != -1)
+                        {
+                            graph.removeLink(source, destination);
+                        }
+                    } 
+                    else 
+                    {
+                        // add the link, or update its weight if it already exists
+                        graph.addLink(source, destination, weight);
+                    }
+                    if (metrics != null)
+                    {
+                        metrics.record(SpfMetrics.Operation.APPLY, null, 0, start);
+                    }
+                
+                    // print the neighbour table, lsdb and routing table when the line names routers at the end.
+                    if (parser.hasRoutes())
+                    {
+                        printRoutes(parser.routes(), null, cache, parallel, out);
+                    }
+                    commit(journal, parser, TopologyJournal.LINKSTATE);
+                }
+                // the section only changes once its keyword has been read, not when the input stops early
+                if (parser.lineEquals(LinkStateParser.UPDATE))
+                {
+                    commit(journal, parser, TopologyJournal.UPDATE);
+                }
+            }
+
+            // The initial topology is complete, so fold the link state edits into the compressed arrays before the updates start.
+            graph.compact();
+
+            // --simulate[=spf] runs every router as its own process that learns the updates by flooding LSAs, and with spf
+            // computes its routing table with the engine on its own LSDB.
+            simulation = RouterSimulation.fromArgs(args, graph, engine);
+
+            // --incremental keeps the shortest path tree of each printed router and repairs it on every update instead of recomputing it.
+            IncrementalSpf incrementalSpf = Arrays.asList(args).contains("--incremental") ? new IncrementalSpf(graph) : null;
+
+            // In ms hold-down mode, a window whose time is up is closed by a timer too, not only by the next line, and its
+            // tables are written out at once. The input loop hands every line to the window under the same lock.
+            if (holdDown != null)
+            {
+                holdDown.closeOnTimer(() -> {
+                    synchronized (holdDown)
+                    {
+                        try
+                        {
+                            closeDueWindow(holdDown, incrementalSpf, cache, parallel, journal, out);
+                            out.flush();
+                        }
+                        catch (IOException | RuntimeException e)
+                        {
+                            windowFailure = e;
+                        }
+                    }
+                });
+            }
+
+            // Read edges until "END" keyword. A line is timed from before it is read.
+            for (long start = lineStart(); parser.nextLine() && !parser.lineEquals(LinkStateParser.END); start = lineStart())
+            {
+                // In hold-down mode the line only goes into the window. The topology changes and the tables are
+                // printed when the window closes, and only then is the input up to here applied in durable mode.
+                if (holdDown != null)
+                {
+                    synchronized (holdDown)
+                    {
+                        if (windowFailure != null)
+                        {
+                            throw windowFailure;
+                        }
+                        if (parser.isQuery())
+                        {
+                            holdDown.tick();
+                            holdDown.query(parser.sourceName(), parser.destinationName());
+                        }
+                        else
+                        {
+                            int weight = parser.weight();
+                            holdDown.update(parser.addSource(), parser.addDestination(), weight);
+                            if (metrics != null)
+                            {
+                                metrics.record(SpfMetrics.Operation.APPLY, null, 0, start);
+                            }
+                            if (parser.hasRoutes())
+                            {
+                                holdDown.routers(parser.routes());
+                            }
+                        }
+                        windowOffset = parser.offset();
+                        closeDueWindow(holdDown, incrementalSpf, cache, parallel, journal, out);
+                    }
+                    continue;
+                }
+                // "QUERY S D" prints the route from S to D and leaves the topology as it is
+                if (parser.isQuery())
+                {
+                    printRoute(parser.sourceName(), parser.destinationName(), graph, out);
+                    commit(journal, parser, TopologyJournal.UPDATE);
+                    continue;
+                }
+                int weight = parser.weight();
+                // If there are one or two unseen routers, then we add them into our graph first.
+                // When the update removes the link, only the new routers are added and there is no link between them.
+                int source = parser.addSource();
+                int destination = parser.addDestination();
+
+                // based on the provided updating link state, we need to update our graph.
+                if (weight == -1) 
+                {
+                    graph.removeLink(source, destination);
+                } 
+                else 
+                {
+                    graph.addLink(source, destination, weight);
+                }
+                // each change is flooded on its own, and its convergence time measured
+                if (simulation != null)
+                {
+                    simulation.converge();
+                }
+                if (metrics != null)
+                {
+                    metrics.record(SpfMetrics.Operation.APPLY, null, 0, start);
+                }
+
+                // print the neighbour table, lsdb and routing table when the line names routers at the end.
+                if (parser.hasRoutes())
+                {
+                    printRoutes(parser.routes(), incrementalSpf, cache, parallel, out);
+                }
+                commit(journal, parser, TopologyJournal.UPDATE);
+            }
+            if (holdDown != null)
+            {
+                // the input is over, so is the last window
+                holdDown.stopTimer();
+                synchronized (holdDown)
+                {
+                    if (windowFailure != null)
+                    {
+                        throw windowFailure;
+                    }
+                    printWindow(holdDown, incrementalSpf, cache, parallel, out);
+                    if (journal != null && windowOffset != -1)
+                    {
+                        journal.commit(windowOffset, TopologyJournal.UPDATE);
+                    }
+                }
+            }
+            out.flush();
+            if (cache != null)
+            {
+                System.err.println(cache.statistics());
+            }
+            if (hierarchy != null)
+            {
+                System.err.println(hierarchy.statistics());
+            }
+            if (holdDown != null)
+            {
+                System.err.println(holdDown.statistics());
+            }
+            if (simulation != null)
+            {
+                System.err.println(simulation.statistics());
+                simulation.shutdown();
+            }
+            if (journal != null)
+            {
+                journal.close();
+                System.err.println(journal.statistics());
+            }
+            if (metrics != null)
+            {
+                metrics.writeSummary();
+            }
+            // After running the Dijkstra algorithm, save the graph to a file in the binary topology snapshot format
+            try
+            {
+                TopologySnapshot.write(graph, Paths.get(topologyFile));
+            } 
+            catch (IOException e) 
+            {
+                e.printStackTrace();
+            }
+        } 
+        catch (Exception e) 
+        {
+            // the tables printed before the failure come first
+            out.flush();
+            System.out.println(e);
+        }
+
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.*;
+
+// Indexed pairing heap over int keys in [0, capacity), ordered by priority, then by hops and then alphabetically by
+// name.
+// Every queued key is a node of a heap-ordered tree kept as first-child / next-sibling links. decrease-key cuts the
+// key's subtree off and links it back under the root, and poll() merges the root's children in two passes, left to
+// right in pairs and then the pairs right to left, which is what keeps the amortized cost of poll at O(log n).
+public class PairingHeap implements SpfQueue
+{
+    private static final int NONE = -1;
+
+    private final String[] names;
+    private final int[] priority;
+    private final int[] hops;
+    private final int[] child;
+    private final int[] sibling;
+    // the previous sibling, or the parent for a first child
+    private final int[] previous;
+    private final boolean[] queued;
+    // subtrees waiting for the second pass of poll()
+    private final int[] pairs;
+    private int root = NONE;
+    private int size;
+
+    public PairingHeap(int capacity, String[] names)
+    {
+        this.names = names;
+        this.priority = new int[capacity];
+        this.hops = new int[capacity];
+        this.child = new int[capacity];
+        this.sibling = new int[capacity];
+        this.previous = new int[capacity];
+        this.queued = new boolean[capacity];
+        this.pairs = new int[capacity];
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public void push(int key, int newPriority, int newHops)
+    {
+        if (!queued[key])
+        {
+            queued[key] = true;
+            size++;
+            priority[key] = newPriority;
+            hops[key] = newHops;
+            child[key] = NONE;
+            sibling[key] = NONE;
+            previous[key] = NONE;
+            root = meld(root, key);
+            return;
+        }
+        if (newPriority > priority[key] || (newPriority == priority[key] && newHops > hops[key]))
+        {
+            throw new IllegalArgumentException("push would increase the priority of key " + key);
+        }
+        priority[key] = newPriority;
+        hops[key] = newHops;
+        if (key != root)
+        {
+            cut(key);
+            root = meld(root, key);
+        }
+    }
+
+    @Override
+    public int poll()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        int top = root;
+        queued[top] = false;
+        size--;
+        root = mergePairs(child[top]);
+        return top;
+    }
+
+    // Walks the trees that are left, with pairs[] as the stack
+    @Override
+    public void clear()
+    {
+        int count = 0;
+        if (root != NONE)
+        {
+            pairs[count++] = root;
+        }
+        while (count > 0)
+        {
+            int key = pairs[--count];
+            queued[key] = false;
+            for (int c = child[key]; c != NONE; c = sibling[c])
+            {
+                pairs[count++] = c;
+            }
+        }
+        root = NONE;
+        size = 0;
+    }
+
+    private boolean less(int a, int b)
+    {
+        if (priority[a] != priority[b])
+        {
+            return priority[a] < priority[b];
+        }
+        if (hops[a] != hops[b])
+        {
+            return hops[a] < hops[b];
+        }
+        return names[a].compareTo(names[b]) < 0;
+    }
+
+    // Link two tree roots, the larger one becomes the first child of the smaller one. Returns the new root.
+    private int meld(int a, int b)
+    {
+        if (a == NONE)
+        {
+            return b;
+        }
+        if (b == NONE)
+        {
+            return a;
+        }
+        if (less(b, a))
+        {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        sibling[b] = child[a];
+        if (child[a] != NONE)
+        {
+            previous[child[a]] = b;
+        }
+        previous[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    // Take the subtree of the key out of its parent's child list.
+    private void cut(int key)
+    {
+        int p = previous[key];
+        if (child[p] == key)
+        {
+            child[p] = sibling[key];
+        }
+        else
+        {
+            sibling[p] = sibling[key];
+        }
+        if (sibling[key] != NONE)
+        {
+            previous[sibling[key]] = p;
+        }
+        sibling[key] = NONE;
+        previous[key] = NONE;
+    }
+
+    // Merge a list of siblings into one tree and return its root.
+    private int mergePairs(int first)
+    {
+        int count = 0;
+        int x = first;
+        while (x != NONE)
+        {
+            int a = x;
+            int b = sibling[a];
+            x = b == NONE ? NONE : sibling[b];
+            sibling[a] = NONE;
+            previous[a] = NONE;
+            if (b != NONE)
+            {
+                sibling[b] = NONE;
+                previous[b] = NONE;
+            }
+            pairs[count++] = meld(a, b);
+        }
+        int merged = NONE;
+        while (count > 0)
+        {
+            merged = meld(pairs[--count], merged);
+        }
+        return merged;
+    }
+}
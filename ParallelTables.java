@@ -0,0 +1,89 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Parallel mode for input lines that name several routers.
+// The tables of each router only read the topology, so they are rendered at the same time on a ForkJoinPool against an
+// immutable snapshot of the graph, published for them once per batch of UPDATE lines. Each router renders into its
+// own buffer, and the buffers are written out in the order the routers appear on the line, so the output is the same
+// as printing them one after another.
+public class ParallelTables
+{
+    // Renders every table of one router into out
+    public interface Renderer
+    {
+        void render(String route, CsrGraph snapshot, TableWriter out);
+    }
+
+    // What one router rendered, and the exception that stopped it if any
+    private static class Rendered
+    {
+        TableWriter output;
+        RuntimeException error;
+    }
+
+    private final ForkJoinPool pool;
+    // snapshots of the graph, a new one only once the topology has changed
+    private PublishedTopology published;
+
+    public ParallelTables(int threads)
+    {
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    // --parallel uses every available processor, --parallel=N uses N threads. Returns null when neither is given.
+    public static ParallelTables fromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.equals("--parallel"))
+            {
+                return new ParallelTables(Runtime.getRuntime().availableProcessors());
+            }
+            if (arg.startsWith("--parallel="))
+            {
+                return new ParallelTables(Integer.parseInt(arg.substring("--parallel=".length())));
+            }
+        }
+        return null;
+    }
+
+    public void print(String[] routes, CsrGraph graph, Renderer renderer, TableWriter out)
+    {
+        if (published == null || published.graph() != graph)
+        {
+            published = new PublishedTopology(graph);
+        }
+        CsrGraph view = published.publish();
+        List<ForkJoinTask<Rendered>> tasks = new ArrayList<>(routes.length);
+        for (String route : routes)
+        {
+            tasks.add(pool.submit(() -> render(route, view, renderer)));
+        }
+        // Write every router's tables in line order. A router that failed still gets the part it rendered before its
+        // exception is rethrown, just like the sequential loop, and the routers after it are not printed.
+        for (ForkJoinTask<Rendered> task : tasks)
+        {
+            Rendered rendered = task.join();
+            out.write(rendered.output.bytes(), 0, rendered.output.size());
+            if (rendered.error != null)
+            {
+                throw rendered.error;
+            }
+        }
+    }
+
+    private static Rendered render(String route, CsrGraph view, Renderer renderer)
+    {
+        Rendered rendered = new Rendered();
+        rendered.output = new TableWriter();
+        try
+        {
+            renderer.render(route, view, rendered.output);
+        }
+        catch (RuntimeException e)
+        {
+            rendered.error = e;
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,60 @@
+// The topology as threads other than its writer see it.
+// The writer changes its graph as usual and calls publish() after each batch of changes. That takes a snapshot, which
+// shares every row and LSDB set the batch did not touch, and swaps it in with one volatile write. Readers call
+// current() and keep the snapshot they got for as long as they work on it, so an SPF, LSDB or table reads one
+// consistent version however many batches are published meanwhile, and neither side ever waits for the other.
+public class PublishedTopology
+{
+    private final CsrGraph graph;
+    private volatile CsrGraph current;
+
+    // written by the writer only
+    private long publications;
+    private long publishNanos;
+
+    public PublishedTopology(CsrGraph graph)
+    {
+        this.graph = graph;
+        this.current = graph.snapshot();
+    }
+
+    // The writer's graph
+    public CsrGraph graph()
+    {
+        return graph;
+    }
+
+    // The last published version, immutable. Any thread may call this.
+    public CsrGraph current()
+    {
+        return current;
+    }
+
+    // The version readers see now, which is the epoch of the writer's graph when it was published
+    public long version()
+    {
+        return current.epoch();
+    }
+
+    // Publish the writer's graph as it is now, unless it has not changed since the last time. Only the writer may call this.
+    public CsrGraph publish()
+    {
+        CsrGraph published = current;
+        if (published.epoch() == graph.epoch())
+        {
+            return published;
+        }
+        long start = System.nanoTime();
+        published = graph.snapshot();
+        current = published;
+        publishNanos += System.nanoTime() - start;
+        publications++;
+        return published;
+    }
+
+    public String statistics()
+    {
+        return "Published topology: version " + version() + ", " + publications + " publications, "
+            + String.format("%.1f us", publications == 0 ? 0.0 : publishNanos / 1e3 / publications) + " each on average";
+    }
+}
@@ -0,0 +1,152 @@
+// Keeps a ContractionHierarchy of the topology for the route queries, with --hierarchy.
+// The hierarchy is built at the first query and kept for as long as the changes to the topology leave it right.
+// It stays right through a change that moves no (distance, hops) between any two routers, because its routes are then
+// still the shortest ones and the next hop is read from the current links of the source. With d the (distance, hops)
+// the hierarchy gives between the two ends of the changed link:
+//   - a link that gets cheaper or is added changes nothing if it is still no shorter than d
+//   - a link that gets dearer or is removed changes nothing if it was longer than d, so some other route was shorter.
+//     A link of one hop is never tied with another route, so d being the link means it was the only shortest route
+// Any other change drops the hierarchy. While there is none, bidirectional Dijkstra answers, and the hierarchy is built
+// again once the time those queries took adds up to what the last build took. That way a run never spends more than
+// about twice what the better of the two would: a burst of updates costs at most one rebuild, and updates that keep
+// coming between queries stop it from rebuilding for every query.
+// Topologies without much of a hierarchy, random ones most of all, leave a large core that queries search without
+// any help from the ranks. Once a build leaves over a tenth of the routers in the core, bidirectional Dijkstra is
+// faster, and it answers the queries from then on without building again.
+public class RouteHierarchy implements TopologyListener
+{
+    private static final int CORE_SHARE = 10;
+
+    private final CsrGraph graph;
+    private final BidirectionalDijkstra bidirectional;
+    // null while a change has made it stale
+    private ContractionHierarchy hierarchy;
+    private ContractionHierarchy.Query query;
+    // set once a build showed the topology has too little of a hierarchy
+    private boolean flat;
+
+    private int coreSize;
+    private long builds;
+    private long buildNanos;
+    private long patches;
+    private long invalidations;
+    private long queries;
+    private long staleQueries;
+    // time spent on queries since the hierarchy was dropped
+    private long staleNanos;
+    private long lastBuildNanos;
+
+    public RouteHierarchy(CsrGraph graph)
+    {
+        this.graph = graph;
+        this.bidirectional = new BidirectionalDijkstra();
+        graph.addListener(this);
+    }
+
+    public static RouteHierarchy fromArgs(String[] args, CsrGraph graph)
+    {
+        for (String arg : args)
+        {
+            if (arg.equals("--hierarchy"))
+            {
+                return new RouteHierarchy(graph);
+            }
+        }
+        return null;
+    }
+
+    // Row {destination, next hop, distance} of the route from router to destination, or null if there is none.
+    public String[] route(String router, String destination)
+    {
+        int source = graph.id(router);
+        int target = graph.id(destination);
+        if (source == -1 || target == -1 || source == target || !graph.components().connected(source, target))
+        {
+            return null;
+        }
+        ContractionHierarchy.Query q = flat || (hierarchy == null && staleNanos < lastBuildNanos) ? null : current();
+        if (q == null)
+        {
+            long start = System.nanoTime();
+            String[] row = bidirectional.route(router, destination, graph);
+            staleNanos += System.nanoTime() - start;
+            staleQueries++;
+            return row;
+        }
+        queries++;
+        return q.route(source, target, graph);
+    }
+
+    // The query of an up-to-date hierarchy, built first if there is none, or null if the topology is flat
+    private ContractionHierarchy.Query current()
+    {
+        if (hierarchy == null)
+        {
+            ContractionHierarchy built = ContractionHierarchy.build(graph);
+            builds++;
+            buildNanos += built.buildNanos();
+            lastBuildNanos = built.buildNanos();
+            staleNanos = 0;
+            coreSize = built.coreSize();
+            if (built.coreSize() > built.nodeCount() / CORE_SHARE)
+            {
+                flat = true;
+                return null;
+            }
+            hierarchy = built;
+            query = hierarchy.new Query();
+        }
+        return query;
+    }
+
+    public ContractionHierarchy hierarchy()
+    {
+        return hierarchy;
+    }
+
+    @Override
+    public void nodeAdded(int id)
+    {
+        // A new router has no links, so it changes no route. Its first link is one the hierarchy does not cover.
+    }
+
+    @Override
+    public void linkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        if (hierarchy == null)
+        {
+            return;
+        }
+        if (u < hierarchy.nodeCount() && v < hierarchy.nodeCount() && u != v && keepsRoutes(u, v, oldWeight, newWeight))
+        {
+            patches++;
+        }
+        else
+        {
+            invalidations++;
+            hierarchy = null;
+            query = null;
+        }
+    }
+
+    private boolean keepsRoutes(int u, int v, int oldWeight, int newWeight)
+    {
+        long d = query.distance(u, v);
+        long oldKey = oldWeight == -1 ? ContractionHierarchy.UNREACHABLE : ContractionHierarchy.key(oldWeight);
+        long newKey = newWeight == -1 ? ContractionHierarchy.UNREACHABLE : ContractionHierarchy.key(newWeight);
+        if (newKey < oldKey)
+        {
+            return newKey >= d;
+        }
+        return oldKey > d;
+    }
+
+    public String statistics()
+    {
+        String built = flat ? "none, " + coreSize + " routers were left in the core"
+            : hierarchy == null ? "none"
+            : hierarchy.shortcuts() + " shortcuts, " + hierarchy.coreSize() + " in the core, " + hierarchy.memoryBytes() + " bytes";
+        return "Route hierarchy: " + queries + " queries, " + staleQueries + " more by bidirectional Dijkstra, " + builds + " builds in "
+            + buildNanos / 1000000 + " ms, " + patches + " patched changes, " + invalidations + " invalidations, current: " + built;
+    }
+}
@@ -0,0 +1,574 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Simulation of the routers as concurrent processes that learn topology changes by flooding link-state advertisements.
+// Every router is an actor: it has its own LSDB and a mailbox, and it runs on a shared ForkJoinPool whenever there is
+// mail for it, so 10^5 routers need no more threads than the processors. Each direction of a link is a channel that
+// holds at most LINK_CAPACITY LSAs in flight. A sender keeps what does not fit and sends it on once the receiver has
+// taken some off the link, so a slow router holds its neighbours back instead of letting the queues grow.
+// A change to the topology makes both routers of the link announce their links again in a router-LSA with the next
+// sequence number. A router installs an LSA that is newer than the one it has and floods it on to every neighbour but
+// the one it came from, and drops the others. Given an engine, a router also runs its own SPF on its LSDB once its
+// mailbox is empty after it installed something: the LSDB becomes a graph of the links that the LSAs of both their
+// routers list, and the engine computes the router's routing table on it. A router keeps a checksum of that table,
+// and when its tables are printed the table of the shared view is checked against it, so what is printed is what the
+// router worked out on its own.
+// The simulation is driven from the input one change at a time: converge() floods what changed and waits until no LSA
+// is left on any link, and that time is the convergence time of the change.
+// The LSDBs are kept as one shared baseline plus the LSAs each router has that are newer. Once the network has
+// converged every router has the same LSAs, so they are folded into the baseline and each LSDB is empty again. That
+// keeps 10^5 LSDBs in memory, and it is why a new link needs no database exchange: both routers have the same LSDB.
+public class RouterSimulation implements TopologyListener
+{
+    // LSAs a link holds in flight before its sender keeps the rest back
+    private static final int LINK_CAPACITY = 16;
+    // messages a router handles before it lets the other routers of its thread run
+    private static final int BATCH = 64;
+
+    // Router-LSA: the links of the originator when it sent it, in the order of the graph's rows, which is by name
+    private static final class Lsa
+    {
+        final int originator;
+        final int sequence;
+        final int[] neighbours;
+        final int[] weights;
+
+        Lsa(int originator, int sequence, int[] neighbours, int[] weights)
+        {
+            this.originator = originator;
+            this.sequence = sequence;
+            this.neighbours = neighbours;
+            this.weights = weights;
+        }
+
+        boolean lists(int router)
+        {
+            for (int neighbour : neighbours)
+            {
+                if (neighbour == router)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // One direction of a link
+    private final class Link
+    {
+        final Router from;
+        final Router to;
+        final AtomicInteger inFlight = new AtomicInteger();
+        // LSAs the sender keeps while the link is full. Only the sender touches it.
+        final ArrayDeque<Lsa> backlog = new ArrayDeque<>();
+        // set while there is a backlog, so the receiver wakes the sender when it takes an LSA off
+        volatile boolean blocked;
+
+        Link(Router from, Router to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean tryAcquire()
+        {
+            while (true)
+            {
+                int n = inFlight.get();
+                if (n >= LINK_CAPACITY)
+                {
+                    return false;
+                }
+                if (inFlight.compareAndSet(n, n + 1))
+                {
+                    return true;
+                }
+            }
+        }
+    }
+
+    // An LSA on a link, or with no link one that the router itself originates
+    private static final class Message
+    {
+        final Lsa lsa;
+        final Link link;
+
+        Message(Lsa lsa, Link link)
+        {
+            this.lsa = lsa;
+            this.link = link;
+        }
+    }
+
+    private final class Router implements Runnable
+    {
+        final int id;
+        // LSAs newer than the baseline
+        final HashMap<Integer, Lsa> newer = new HashMap<>();
+        // links to the neighbours, by neighbour
+        final HashMap<Integer, Link> links = new HashMap<>();
+        final ConcurrentLinkedQueue<Message> mailbox = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // links with a backlog
+        final ArrayDeque<Link> blocked = new ArrayDeque<>();
+        boolean spfDue;
+        // checksum of the routing table of its last SPF run, read once the network is quiet
+        boolean spfDone;
+        long spfChecksum;
+
+        Router(int id)
+        {
+            this.id = id;
+        }
+
+        Lsa lsa(int originator)
+        {
+            Lsa lsa = newer.get(originator);
+            return lsa != null ? lsa : baseline[originator];
+        }
+
+        void deliver(Message message)
+        {
+            mailbox.add(message);
+            wake();
+        }
+
+        void wake()
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            sendBacklogs();
+            Message message;
+            int handled = 0;
+            while (handled < BATCH && (message = mailbox.poll()) != null)
+            {
+                receive(message);
+                handled++;
+            }
+            if (spfDue && mailbox.isEmpty())
+            {
+                spfDue = false;
+                runSpf(this);
+                spfRuns.increment();
+                done();
+            }
+            scheduled.set(false);
+            // mail that came while it was running, or links that got room before they were marked blocked
+            if (!mailbox.isEmpty() || backlogFits())
+            {
+                wake();
+            }
+        }
+
+        private boolean backlogFits()
+        {
+            for (Link link : blocked)
+            {
+                if (link.inFlight.get() < LINK_CAPACITY)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void receive(Message message)
+        {
+            Lsa lsa = message.lsa;
+            Router from = message.link == null ? null : message.link.from;
+            if (message.link != null)
+            {
+                received.increment();
+                message.link.inFlight.decrementAndGet();
+                if (message.link.blocked)
+                {
+                    from.wake();
+                }
+            }
+            if (lsa.sequence > lsa(lsa.originator).sequence)
+            {
+                newer.put(lsa.originator, lsa);
+                installs.increment();
+                lastInstall.accumulateAndGet(System.nanoTime(), Math::max);
+                for (Link link : links.values())
+                {
+                    if (link.to != from)
+                    {
+                        send(link, lsa);
+                    }
+                }
+                if (engine != null && !spfDue)
+                {
+                    spfDue = true;
+                    outstanding.incrementAndGet();
+                }
+            }
+            else
+            {
+                duplicates.increment();
+            }
+            done();
+        }
+
+        private void send(Link link, Lsa lsa)
+        {
+            outstanding.incrementAndGet();
+            if (link.backlog.isEmpty() && link.tryAcquire())
+            {
+                link.to.deliver(new Message(lsa, link));
+                return;
+            }
+            held.increment();
+            link.backlog.add(lsa);
+            if (!link.blocked)
+            {
+                link.blocked = true;
+                blocked.add(link);
+            }
+        }
+
+        // Send on what the full links kept back, as far as they have room now
+        private void sendBacklogs()
+        {
+            for (int i = blocked.size(); i > 0; i--)
+            {
+                Link link = blocked.poll();
+                while (!link.backlog.isEmpty() && link.tryAcquire())
+                {
+                    link.to.deliver(new Message(link.backlog.poll(), link));
+                }
+                if (link.backlog.isEmpty())
+                {
+                    link.blocked = false;
+                }
+                else
+                {
+                    blocked.add(link);
+                }
+            }
+        }
+    }
+
+    private final CsrGraph graph;
+    // runs the SPF of every router, null when the routers only flood
+    private final ShortestPathEngine engine;
+    private final ForkJoinPool pool;
+    private Router[] routers;
+    private Lsa[] baseline;
+    private int routerCount;
+    // routers with a changed link since the last converge()
+    private final LinkedHashSet<Integer> changed = new LinkedHashSet<>();
+
+    // messages on links or held back, and SPF runs that are due; the network has converged when it is 0
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong lastInstall = new AtomicLong();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder installs = new LongAdder();
+    private final LongAdder held = new LongAdder();
+    private final LongAdder spfRuns = new LongAdder();
+    private long spfChecks;
+    private long originated;
+    private long floodNanos;
+    private long[] convergenceNanos = new long[64];
+    private int changes;
+
+    // view of the baseline for printing tables, built again once the baseline has moved on
+    private CsrGraph view;
+    private int baselineVersion;
+    private int viewVersion = -1;
+
+    public RouterSimulation(CsrGraph graph, ShortestPathEngine engine, int threads)
+    {
+        this.graph = graph;
+        this.engine = engine;
+        this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        int n = graph.nodeCount();
+        routers = new Router[Math.max(16, n)];
+        baseline = new Lsa[routers.length];
+        for (int u = 0; u < n; u++)
+        {
+            nodeAdded(u);
+        }
+        for (int u = 0; u < n; u++)
+        {
+            for (int i = 0, degree = graph.degree(u); i < degree; i++)
+            {
+                int v = graph.target(u, i);
+                if (v != u)
+                {
+                    routers[u].links.put(v, new Link(routers[u], routers[v]));
+                }
+            }
+        }
+        graph.addListener(this);
+    }
+
+    // --simulate floods the changes between the routers, --simulate=spf also has each router run its own SPF with the
+    // engine. Returns null when neither is given.
+    public static RouterSimulation fromArgs(String[] args, CsrGraph graph, ShortestPathEngine engine)
+    {
+        for (String arg : args)
+        {
+            if (arg.equals("--simulate") || arg.equals("--simulate=spf"))
+            {
+                return new RouterSimulation(graph, arg.endsWith("=spf") ? engine : null, Runtime.getRuntime().availableProcessors());
+            }
+        }
+        return null;
+    }
+
+    private Lsa announce(int u, int sequence)
+    {
+        int degree = graph.degree(u);
+        int[] neighbours = new int[degree];
+        int[] weights = new int[degree];
+        for (int i = 0; i < degree; i++)
+        {
+            neighbours[i] = graph.target(u, i);
+            weights[i] = graph.weight(u, i);
+        }
+        return new Lsa(u, sequence, neighbours, weights);
+    }
+
+    @Override
+    public void nodeAdded(int id)
+    {
+        if (id == routers.length)
+        {
+            routers = Arrays.copyOf(routers, id * 2);
+            baseline = Arrays.copyOf(baseline, id * 2);
+        }
+        routers[id] = new Router(id);
+        baseline[id] = announce(id, 0);
+        routerCount = id + 1;
+        baselineVersion++;
+    }
+
+    // Called while the network is quiet, so the links can change under no one
+    @Override
+    public void linkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        if (u != v)
+        {
+            if (oldWeight == -1 && newWeight != -1)
+            {
+                routers[u].links.put(v, new Link(routers[u], routers[v]));
+                routers[v].links.put(u, new Link(routers[v], routers[u]));
+            }
+            else if (newWeight == -1)
+            {
+                routers[u].links.remove(v);
+                routers[v].links.remove(u);
+            }
+        }
+        changed.add(u);
+        changed.add(v);
+    }
+
+    // Flood the announcements of the routers whose links changed since the last call and wait until the network is
+    // quiet again. Returns how long that took, in nanoseconds.
+    public long converge()
+    {
+        if (changed.isEmpty())
+        {
+            return 0;
+        }
+        long start = System.nanoTime();
+        lastInstall.set(start);
+        List<Router> originators = new ArrayList<>();
+        for (int u : changed)
+        {
+            Router router = routers[u];
+            outstanding.incrementAndGet();
+            router.mailbox.add(new Message(announce(u, baseline[u].sequence + 1), null));
+            originators.add(router);
+            originated++;
+        }
+        changed.clear();
+        for (Router router : originators)
+        {
+            router.wake();
+        }
+        synchronized (outstanding)
+        {
+            while (outstanding.get() > 0)
+            {
+                try
+                {
+                    outstanding.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while the network converges", e);
+                }
+            }
+        }
+        long took = System.nanoTime() - start;
+        floodNanos += lastInstall.get() - start;
+        if (changes == convergenceNanos.length)
+        {
+            convergenceNanos = Arrays.copyOf(convergenceNanos, changes * 2);
+        }
+        convergenceNanos[changes++] = took;
+        fold();
+        return took;
+    }
+
+    private void done()
+    {
+        if (outstanding.decrementAndGet() == 0)
+        {
+            synchronized (outstanding)
+            {
+                outstanding.notifyAll();
+            }
+        }
+    }
+
+    // Every router has the same LSAs now, so they become the baseline
+    private void fold()
+    {
+        for (int u = 0; u < routerCount; u++)
+        {
+            Router router = routers[u];
+            for (Lsa lsa : router.newer.values())
+            {
+                if (lsa.sequence > baseline[lsa.originator].sequence)
+                {
+                    baseline[lsa.originator] = lsa;
+                }
+            }
+            router.newer.clear();
+        }
+        baselineVersion++;
+    }
+
+    // The topology as the router sees it, for its tables. Between changes every router's LSDB is the baseline, so it is
+    // one graph, built again only after the baseline has changed.
+    public CsrGraph view(int router)
+    {
+        if (viewVersion != baselineVersion)
+        {
+            view = buildView(routers[router]);
+            viewVersion = baselineVersion;
+        }
+        return view;
+    }
+
+    // CSR arrays of the links that the LSAs of both their routers list
+    private CsrGraph buildView(Router router)
+    {
+        int n = routerCount;
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[graph.edgeCount() * 2 + n];
+        int[] weights = new int[targets.length];
+        int arcs = 0;
+        for (int u = 0; u < n; u++)
+        {
+            Lsa lsa = router.lsa(u);
+            for (int i = 0; i < lsa.neighbours.length; i++)
+            {
+                int v = lsa.neighbours[i];
+                if (v == u || router.lsa(v).lists(u))
+                {
+                    if (arcs == targets.length)
+                    {
+                        targets = Arrays.copyOf(targets, arcs * 2);
+                        weights = Arrays.copyOf(weights, arcs * 2);
+                    }
+                    targets[arcs] = v;
+                    weights[arcs] = lsa.weights[i];
+                    arcs++;
+                }
+            }
+            offsets[u + 1] = arcs;
+        }
+        return graph.withLinks(offsets, Arrays.copyOf(targets, arcs), Arrays.copyOf(weights, arcs));
+    }
+
+    // The router's own SPF: the engine's routing table of the router on the graph of its own LSDB
+    private void runSpf(Router router)
+    {
+        router.spfChecksum = checksum(engine.routingTable(graph.name(router.id), buildView(router)));
+        router.spfDone = true;
+    }
+
+    // Check the routing table of the router on the shared view against the one its own SPF computed, once the network is
+    // quiet. Routers that have not run SPF yet have nothing to check.
+    public void checkRoutingTable(int router)
+    {
+        Router own = routers[router];
+        if (engine == null || !own.spfDone)
+        {
+            return;
+        }
+        String name = graph.name(router);
+        if (checksum(engine.routingTable(name, view(router))) != own.spfChecksum)
+        {
+            throw new IllegalStateException("The routing table of " + name + " differs from the one its own SPF computed");
+        }
+        spfChecks++;
+    }
+
+    private static long checksum(List<String[]> rows)
+    {
+        long checksum = rows.size();
+        for (String[] row : rows)
+        {
+            for (String field : row)
+            {
+                checksum = checksum * 31 + field.hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    // Convergence time of the i-th change, in nanoseconds
+    public long convergenceNanos(int change)
+    {
+        return convergenceNanos[change];
+    }
+
+    public int changes()
+    {
+        return changes;
+    }
+
+    public long lsasReceived()
+    {
+        return received.sum();
+    }
+
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    public String statistics()
+    {
+        long[] sorted = Arrays.copyOf(convergenceNanos, changes);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted)
+        {
+            total += nanos;
+        }
+        String convergence = changes == 0 ? "no changes" : String.format("convergence mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+            total / 1e6 / changes, sorted[changes / 2] / 1e6, sorted[Math.min(changes - 1, changes * 99 / 100)] / 1e6, sorted[changes - 1] / 1e6);
+        return "Simulation: " + routerCount + " routers, " + changes + " changes, " + originated + " LSAs originated, "
+            + received.sum() + " received, " + installs.sum() + " installed, " + duplicates.sum() + " duplicates, "
+            + held.sum() + " held back by full links, " + spfRuns.sum() + " SPF runs, " + spfChecks + " tables checked against them, " + convergence
+            + String.format(", %.0f LSAs/s while flooding", floodNanos == 0 ? 0.0 : received.sum() / (floodNanos / 1e9));
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.*;
+
+// LRU cache of computed routing tables, keyed by router name.
+// An entry is tagged with the root of the router's component and that component's epoch when the table was computed.
+// As a listener, the cache moves on the epoch of the components at both ends of every change, so a change costs O(1)
+// whatever the number of entries, and an entry is only found stale when it is asked for: it is valid while the router
+// is still in the component of that root and the epoch has not moved. A component that joins another stops being a
+// root, and the roots of the two halves of a split are both moved on, so every change that can alter a table is seen.
+// LSDBs are not kept here, the topology keeps them sorted per component already (see LinkStateIndex).
+// The cache is bounded by the rows it holds rather than by routers, since one table has as many rows as its component
+// has routers. A row takes about 80 bytes, the names in it are the topology's own.
+public class RoutingTableCache implements TopologyListener
+{
+    public static final int DEFAULT_MAX_ROWS = 1 << 20;
+
+    public static class Entry
+    {
+        final List<String[]> routes;
+        // root of the router's component, and the epoch of that component, when the table was computed
+        int root;
+        long epoch;
+
+        Entry(List<String[]> routes)
+        {
+            this.routes = routes;
+        }
+    }
+
+    private final CsrGraph graph;
+    private final int maxRows;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // component root -> epoch, moved on by every change in the component
+    private long[] componentEpochs;
+    private long rows;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private long evictions;
+
+    public RoutingTableCache(CsrGraph graph)
+    {
+        this(graph, DEFAULT_MAX_ROWS);
+    }
+
+    public RoutingTableCache(CsrGraph graph, int maxRows)
+    {
+        this.graph = graph;
+        this.maxRows = maxRows;
+        this.componentEpochs = new long[Math.max(16, graph.nodeCount())];
+        graph.addListener(this);
+    }
+
+    // --cache keeps up to DEFAULT_MAX_ROWS rows, --cache=N up to N rows. Returns null when neither is given.
+    public static RoutingTableCache fromArgs(String[] args, CsrGraph graph)
+    {
+        for (String arg : args)
+        {
+            if (arg.equals("--cache"))
+            {
+                return new RoutingTableCache(graph);
+            }
+            if (arg.startsWith("--cache="))
+            {
+                return new RoutingTableCache(graph, Integer.parseInt(arg.substring("--cache=".length())));
+            }
+        }
+        return null;
+    }
+
+    // Cached table of the router, or null if it has to be computed.
+    public synchronized Entry get(String router)
+    {
+        Entry entry = entries.get(router);
+        if (entry == null)
+        {
+            misses++;
+            return null;
+        }
+        int root = graph.components().root(graph.id(router));
+        if (root != entry.root || componentEpochs[root] != entry.epoch)
+        {
+            invalidations++;
+            misses++;
+            remove(router);
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    public synchronized void put(String router, Entry entry)
+    {
+        // a table bigger than the whole cache is not kept, it would only push everything else out
+        if (entry.routes.size() > maxRows)
+        {
+            return;
+        }
+        int root = graph.components().root(graph.id(router));
+        entry.root = root;
+        entry.epoch = componentEpochs[root];
+        remove(router);
+        entries.put(router, entry);
+        rows += entry.routes.size();
+        // least recently used first
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (rows > maxRows)
+        {
+            rows -= iterator.next().routes.size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String router)
+    {
+        Entry removed = entries.remove(router);
+        if (removed != null)
+        {
+            rows -= removed.routes.size();
+        }
+    }
+
+    @Override
+    public synchronized void nodeAdded(int id)
+    {
+        // A new router has no links yet, so it cannot change any cached table.
+        if (id >= componentEpochs.length)
+        {
+            componentEpochs = Arrays.copyOf(componentEpochs, Math.max(id + 1, componentEpochs.length * 2));
+        }
+    }
+
+    @Override
+    public synchronized void linkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        // A change can only alter the tables of the components it touches. After a new link between two components, the
+        // root of the joined one has moved on, and the other root is no longer a root. After a removed link split a
+        // component, the roots of both halves have moved on.
+        ComponentIndex components = graph.components();
+        componentEpochs[components.root(u)]++;
+        componentEpochs[components.root(v)]++;
+    }
+
+    public synchronized String statistics()
+    {
+        return "Routing table cache: " + hits + " hits, " + misses + " misses, " + invalidations + " invalidations, "
+            + evictions + " evictions, " + entries.size() + " entries, " + rows + " rows";
+    }
+}
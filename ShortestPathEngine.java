@@ -0,0 +1,129 @@
+import java.util.*;
+
+// Computes the routing table of a router.
+// Every engine is the same Dijkstra (see DijkstraEngine) and differs only in the SpfQueue that holds the routers waiting
+// to be settled, so all of them print byte-identical routing tables:
+//   - routers are settled smallest distance first, then fewest hops, and alphabetically among equal distances and hops,
+//     so a router is settled after every router its best route goes through, zero-weight links included
+//   - a route is labelled (distance, hops, first hop), and the better label is the shorter one, then the one with fewer
+//     hops, then the one whose next hop comes first alphabetically. better() is that rule, and it is the only copy of it
+// Engines, picked with --engine=NAME:
+//   linear   scans all waiting routers for the next one, O(n^2). The default of Dijkstra
+//   lazy     java.util.PriorityQueue. A router is queued again when its distance drops and stale entries are skipped
+//   indexed  indexed 4-ary heap with decrease-key, O((n + m) log n). The default of DijkstraNlogN
+//   pairing  pairing heap with decrease-key
+//   bucket   Dial's bucket queue with one bucket per distance, O(n + m + D) for the largest distance D. Falls back to
+//            the indexed heap when the largest link weight makes buckets uneconomical (see BucketQueue.economical)
+public interface ShortestPathEngine
+{
+    String LINEAR = "linear";
+    String LAZY = "lazy";
+    String INDEXED_HEAP = "indexed";
+    String PAIRING_HEAP = "pairing";
+    String BUCKET = "bucket";
+    List<String> ENGINES = List.of(LINEAR, LAZY, INDEXED_HEAP, PAIRING_HEAP, BUCKET);
+
+    // What one SPF run did, filled in by the engines that count it, see SpfMetrics
+    final class Counters
+    {
+        // routers taken off the queue, and links looked at from them
+        public long settled;
+        public long relaxed;
+        // routers queued, or moved up in the queue
+        public long pushes;
+        // of those, routers that were queued already: a decrease-key, or a second entry in queues without one
+        public long decreaseKeys;
+        // queue entries skipped since their router was queued again closer, see SpfQueue.stalePops
+        public long stalePops;
+        // labels that tied on distance, which better() had to decide on hops and next hop
+        public long tieBreaks;
+    }
+
+    // Rows {destination, next hop, distance} of every router the router reaches, sorted by destination.
+    List<String[]> routingTable(String router, CsrGraph graph);
+
+    // The same rows, with what the SPF run did added to counters. Engines that do not count leave them as they are.
+    default List<String[]> routingTable(String router, CsrGraph graph, Counters counters)
+    {
+        return routingTable(router, graph);
+    }
+
+    // Write the rows of routingTable() to out as "destination|next hop|distance" lines, and return how many there were.
+    // DijkstraEngine writes them from its SPF workspace without making the rows.
+    default int writeRoutingTable(String router, CsrGraph graph, TableWriter out, Counters counters)
+    {
+        List<String[]> rows = routingTable(router, graph, counters);
+        for (String[] row : rows)
+        {
+            out.text(row[0]).bar().text(row[1]).bar().text(row[2]).newLine();
+        }
+        return rows.size();
+    }
+
+    // The row of the routing table of router for the destination, or null if the table has none.
+    default String[] route(String router, String destination, CsrGraph graph)
+    {
+        if (graph.id(router) == -1)
+        {
+            return null;
+        }
+        for (String[] row : routingTable(router, graph))
+        {
+            if (row[0].equals(destination))
+            {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    static ShortestPathEngine named(String name)
+    {
+        switch (name)
+        {
+            case LINEAR:
+                return new DijkstraEngine(graph -> new LinearScanQueue(graph.nodeCount(), graph.names()));
+            case LAZY:
+                return new DijkstraEngine(graph -> new LazyPriorityQueue(graph.nodeCount(), graph.names()));
+            case INDEXED_HEAP:
+                return new DijkstraEngine(graph -> new IndexedDaryHeap(4, graph.nodeCount(), graph.names()));
+            case PAIRING_HEAP:
+                return new DijkstraEngine(graph -> new PairingHeap(graph.nodeCount(), graph.names()));
+            case BUCKET:
+                return new DijkstraEngine(graph -> BucketQueue.economical(graph.maxWeight(), graph.nodeCount())
+                    ? new BucketQueue(graph.maxWeight(), graph.nodeCount(), graph.nameOrder())
+                    : new IndexedDaryHeap(4, graph.nodeCount(), graph.names()));
+            default:
+                throw new IllegalArgumentException("Unknown engine " + name + ", expected one of " + ENGINES);
+        }
+    }
+
+    // The engine named by --engine=NAME, or the fallback engine without it.
+    static ShortestPathEngine fromArgs(String[] args, String fallback)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("--engine="))
+            {
+                return named(arg.substring("--engine=".length()));
+            }
+        }
+        return named(fallback);
+    }
+
+    // Whether the route (distance, hops, firstHop) beats the route (oldDistance, oldHops, oldFirstHop).
+    // If there are two paths with the same cost, the one with the least hops wins, and if their hops are the same as
+    // well, the one whose next hop comes first in alphabetical order.
+    static boolean better(int distance, int hops, String firstHop, int oldDistance, int oldHops, String oldFirstHop)
+    {
+        if (distance != oldDistance)
+        {
+            return distance < oldDistance;
+        }
+        if (hops != oldHops)
+        {
+            return hops < oldHops;
+        }
+        return firstHop.compareTo(oldFirstHop) < 0;
+    }
+}
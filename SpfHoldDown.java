@@ -0,0 +1,232 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// SPF hold-down for bursty UPDATE sections, like the SPF throttling of OSPF.
+// Instead of changing the topology and printing tables for every line, the lines of a window are collected: the link
+// changes by router pair, so that only the last weight of each pair is applied, and the routers and QUERY lines that
+// ask for tables, each once. When the window closes the net changes are applied, which skips a pair whose last weight
+// is what the link had anyway, and every router asked for gets one SPF against the final topology.
+// A window opens at the first request for tables and closes initial later. A window that opens within the hold time of
+// the last one waits out the hold time, and the hold time doubles with every such window up to max, so a steady storm
+// is answered every max, and it drops back to hold once the input goes quiet for that long.
+// The times are counted in UPDATE lines, or in milliseconds of wall-clock time with an ms suffix. In lines, a window
+// closes at the line its time is up, or at the end of the input. In ms, a timer also closes it once its time is up (see
+// closeOnTimer), since input from stdin can go quiet for any time and would otherwise leave its tables unprinted.
+public class SpfHoldDown
+{
+    private final boolean wallClock;
+    // in lines, or nanoseconds
+    private final long initial;
+    private final long hold;
+    private final long max;
+
+    // last weight of every pair changed in the window, -1 for a removed link, in the order they were first changed
+    private final LinkedHashMap<Long, Integer> changes = new LinkedHashMap<>();
+    private final LinkedHashSet<String> routers = new LinkedHashSet<>();
+    private final LinkedHashSet<List<String>> queries = new LinkedHashSet<>();
+
+    private long lines;
+    private boolean open;
+    private long closesAt;
+    private long lastRun = Long.MIN_VALUE;
+    private long currentHold;
+
+    // ms mode only, runs closeDue once a window's time is up
+    private ScheduledExecutorService timer;
+    private Runnable closeDue;
+
+    private long updates;
+    private long appliedChanges;
+    private long requests;
+    private long spfRuns;
+    private long windows;
+
+    public SpfHoldDown(boolean wallClock, long initial, long hold, long max)
+    {
+        if (initial < 0 || hold < 0 || max < hold)
+        {
+            throw new IllegalArgumentException("SPF hold-down needs 0 <= initial, 0 <= hold <= max");
+        }
+        long unit = wallClock ? 1000000L : 1L;
+        this.wallClock = wallClock;
+        this.initial = initial * unit;
+        this.hold = hold * unit;
+        this.max = max * unit;
+        this.currentHold = this.hold;
+    }
+
+    // --spf-hold=INITIAL,HOLD,MAX in lines, or --spf-hold=INITIALms,HOLDms,MAXms. Returns null when it is not given.
+    public static SpfHoldDown fromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("--spf-hold="))
+            {
+                String[] times = arg.substring("--spf-hold=".length()).split(",");
+                if (times.length != 3)
+                {
+                    throw new IllegalArgumentException("--spf-hold takes INITIAL,HOLD,MAX: " + arg);
+                }
+                boolean wallClock = times[0].endsWith("ms");
+                long[] values = new long[3];
+                for (int i = 0; i < 3; i++)
+                {
+                    if (times[i].endsWith("ms") != wallClock)
+                    {
+                        throw new IllegalArgumentException("--spf-hold times are all lines or all ms: " + arg);
+                    }
+                    values[i] = Long.parseLong(wallClock ? times[i].substring(0, times[i].length() - 2) : times[i]);
+                }
+                return new SpfHoldDown(wallClock, values[0], values[1], values[2]);
+            }
+        }
+        return null;
+    }
+
+    private long now()
+    {
+        return wallClock ? System.nanoTime() : lines;
+    }
+
+    // An UPDATE line that sets the link u-v to weight, or removes it with -1
+    public void update(int u, int v, int weight)
+    {
+        lines++;
+        updates++;
+        changes.put(u < v ? (long) u << 32 | v : (long) v << 32 | u, weight);
+    }
+
+    // A line that changes nothing but counts towards the window, a QUERY line
+    public void tick()
+    {
+        lines++;
+    }
+
+    public void routers(String[] names)
+    {
+        requests += names.length;
+        routers.addAll(Arrays.asList(names));
+        schedule();
+    }
+
+    public void query(String source, String destination)
+    {
+        requests++;
+        queries.add(List.of(source, destination));
+        schedule();
+    }
+
+    private void schedule()
+    {
+        if (open)
+        {
+            return;
+        }
+        open = true;
+        long start = now();
+        if (lastRun != Long.MIN_VALUE && start - lastRun < currentHold)
+        {
+            // back to back with the last window: wait out the hold time, and hold longer next time
+            closesAt = Math.max(start + initial, lastRun + currentHold);
+            currentHold = Math.min(currentHold * 2, max);
+        }
+        else
+        {
+            closesAt = start + initial;
+            currentHold = hold;
+        }
+        if (timer != null)
+        {
+            timer.schedule(closeDue, closesAt - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // In ms mode, run closeDue on a timer thread whenever a window's time is up, whether a line comes or not. closeDue
+    // has to hold the lock the lines are handed in under, and checks due() itself, since a line may have closed the
+    // window first. In lines there is no timer, and this does nothing.
+    public void closeOnTimer(Runnable closeDue)
+    {
+        if (!wallClock)
+        {
+            return;
+        }
+        this.closeDue = closeDue;
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "spf-hold-down");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Stop the timer, at the end of the input. A window still open is closed by the caller.
+    public void stopTimer()
+    {
+        if (timer != null)
+        {
+            timer.shutdownNow();
+        }
+    }
+
+    // Whether the window is over and its tables are due
+    public boolean due()
+    {
+        return open && now() >= closesAt;
+    }
+
+    // Apply the net link changes collected so far. What the window asked for is then in pendingRouters() and pendingQueries().
+    public void apply(CsrGraph graph)
+    {
+        for (Map.Entry<Long, Integer> change : changes.entrySet())
+        {
+            int u = (int) (change.getKey() >>> 32);
+            int v = (int) (long) change.getKey();
+            int weight = change.getValue();
+            if (graph.linkWeight(u, v) == weight)
+            {
+                continue;
+            }
+            if (weight == -1)
+            {
+                graph.removeLink(u, v);
+            }
+            else
+            {
+                graph.addLink(u, v, weight);
+            }
+            appliedChanges++;
+        }
+        changes.clear();
+    }
+
+    // The routers the window asked for tables of, in the order they were first asked for
+    public String[] pendingRouters()
+    {
+        return routers.toArray(new String[0]);
+    }
+
+    // The {source, destination} of the QUERY lines of the window, each once
+    public List<List<String>> pendingQueries()
+    {
+        return new ArrayList<>(queries);
+    }
+
+    // The tables of the window are printed, the next request opens a new one
+    public void closeWindow()
+    {
+        if (open)
+        {
+            windows++;
+            lastRun = now();
+        }
+        spfRuns += routers.size() + queries.size();
+        routers.clear();
+        queries.clear();
+        open = false;
+    }
+
+    public String statistics()
+    {
+        return "SPF hold-down: " + windows + " windows, " + updates + " updates, " + (updates - appliedChanges) + " absorbed, "
+            + requests + " tables and routes asked for, " + spfRuns + " SPF runs, " + (requests - spfRuns) + " saved";
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import jdk.jfr.*;
+
+// Where the time of a run goes, turned on with --metrics[=FILE].
+// Every neighbour table, LSDB and route query is timed, and so is every routing table's SPF run, which also reports the
+// routers it settled, the links it relaxed, its queue pushes and how many of them were decrease-keys, the stale queue
+// entries it skipped and the labels that tied on distance and needed the hops and next hop to decide (see ShortestPathEngine.Counters). A routing table that
+// takes no SPF run is timed as its own operation: cachedTable when --cache still had it, incrementalTable when it came
+// from the kept tree of --incremental. Every LINKSTATE and UPDATE line is timed from reading it to the change being
+// applied, without the tables it asks for.
+// Each operation goes into histograms (see Histogram), which are summed up at END as JSON on stderr, or written to
+// FILE, as CSV if its name ends in .csv and as JSON otherwise.
+// Each operation is also a JDK Flight Recorder event in the "Link State" category, committed once it is done with its
+// latency as a field, e.g. java -XX:StartFlightRecording=filename=run.jfr DijkstraNlogN --metrics input.txt. Events
+// are only made once Flight Recorder is running, since the first event would start it up, which takes about 400 ms.
+// Without --metrics nothing is measured, and the programs check one null field per table.
+public class SpfMetrics
+{
+    // The operations that are measured, by the name they have in the summary
+    public enum Operation
+    {
+        NEIGHBOUR_TABLE("neighbourTable"),
+        LS_DATABASE("lsDatabase"),
+        ROUTING_TABLE("routingTable"),
+        CACHED_TABLE("cachedTable"),
+        INCREMENTAL_TABLE("incrementalTable"),
+        ROUTE("route"),
+        APPLY("apply");
+
+        final String label;
+
+        Operation(String label)
+        {
+            this.label = label;
+        }
+    }
+
+    // Histograms and totals of one operation, changed under its own lock since tables are printed from several threads
+    private static final class Stats
+    {
+        final Histogram latency = new Histogram();
+        // rows printed, LSDB links listed, or routing table rows
+        long rows;
+        // SPF runs only
+        final Histogram settled = new Histogram();
+        final Histogram relaxed = new Histogram();
+        long pushes;
+        long decreaseKeys;
+        long stalePops;
+        long tieBreaks;
+    }
+
+    @Name("linkstate.Operation")
+    @Label("Link State Operation")
+    @Category("Link State")
+    @Description("A neighbour table, LSDB, routing table without an SPF run or route query, or a LINKSTATE or UPDATE line applied to the topology")
+    static final class OperationEvent extends Event
+    {
+        @Label("Operation")
+        String operation;
+        @Label("Router")
+        String router;
+        @Label("Rows")
+        long rows;
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    @Name("linkstate.Spf")
+    @Label("SPF Run")
+    @Category("Link State")
+    @Description("The SPF run of one routing table")
+    static final class SpfEvent extends Event
+    {
+        @Label("Router")
+        String router;
+        @Label("Rows")
+        long rows;
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+        @Label("Routers Settled")
+        long settled;
+        @Label("Links Relaxed")
+        long relaxed;
+        @Label("Queue Pushes")
+        long pushes;
+        @Label("Decrease-keys")
+        long decreaseKeys;
+        @Label("Stale Pops")
+        long stalePops;
+        @Label("Tie-breaks")
+        long tieBreaks;
+    }
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    // where the summary goes, null for stderr
+    private final Path file;
+
+    public SpfMetrics(Path file)
+    {
+        this.file = file;
+        for (Operation operation : Operation.values())
+        {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    // --metrics sums up on stderr, --metrics=FILE writes the summary to FILE. Returns null when neither is given.
+    public static SpfMetrics fromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.equals("--metrics"))
+            {
+                return new SpfMetrics(null);
+            }
+            if (arg.startsWith("--metrics="))
+            {
+                return new SpfMetrics(Paths.get(arg.substring("--metrics=".length())));
+            }
+        }
+        return null;
+    }
+
+    // An operation other than an SPF run that started at start, in System.nanoTime(), and is done now
+    public void record(Operation operation, String router, long rows, long start)
+    {
+        long latency = System.nanoTime() - start;
+        Stats s = stats.get(operation);
+        synchronized (s)
+        {
+            s.latency.record(latency);
+            s.rows += rows;
+        }
+        if (!FlightRecorder.isInitialized())
+        {
+            return;
+        }
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled())
+        {
+            event.operation = operation.label;
+            event.router = router;
+            event.rows = rows;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    // The SPF run of a routing table that started at start and is done now, with what it did in counters
+    public void spf(String router, long rows, ShortestPathEngine.Counters counters, long start)
+    {
+        long latency = System.nanoTime() - start;
+        Stats s = stats.get(Operation.ROUTING_TABLE);
+        synchronized (s)
+        {
+            s.latency.record(latency);
+            s.rows += rows;
+            s.settled.record(counters.settled);
+            s.relaxed.record(counters.relaxed);
+            s.pushes += counters.pushes;
+            s.decreaseKeys += counters.decreaseKeys;
+            s.stalePops += counters.stalePops;
+            s.tieBreaks += counters.tieBreaks;
+        }
+        if (!FlightRecorder.isInitialized())
+        {
+            return;
+        }
+        SpfEvent event = new SpfEvent();
+        if (event.isEnabled())
+        {
+            event.router = router;
+            event.rows = rows;
+            event.latency = latency;
+            event.settled = counters.settled;
+            event.relaxed = counters.relaxed;
+            event.pushes = counters.pushes;
+            event.decreaseKeys = counters.decreaseKeys;
+            event.stalePops = counters.stalePops;
+            event.tieBreaks = counters.tieBreaks;
+            event.commit();
+        }
+    }
+
+    // Write the summary to where --metrics said
+    public void writeSummary() throws IOException
+    {
+        if (file == null)
+        {
+            System.err.print(json());
+            return;
+        }
+        String summary = file.toString().endsWith(".csv") ? csv() : json();
+        Files.write(file, summary.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // One object per operation, latencies in nanoseconds
+    public String json()
+    {
+        StringBuilder out = new StringBuilder("{\n");
+        for (Operation operation : Operation.values())
+        {
+            Stats s = stats.get(operation);
+            synchronized (s)
+            {
+                out.append("  \"").append(operation.label).append("\": {\"count\": ").append(s.latency.count())
+                    .append(", \"rows\": ").append(s.rows)
+                    .append(", \"latencyNanos\": ").append(json(s.latency));
+                if (operation == Operation.ROUTING_TABLE)
+                {
+                    out.append(", \"settled\": ").append(json(s.settled))
+                        .append(", \"relaxed\": ").append(json(s.relaxed))
+                        .append(", \"pushes\": ").append(s.pushes)
+                        .append(", \"decreaseKeys\": ").append(s.decreaseKeys)
+                        .append(", \"stalePops\": ").append(s.stalePops)
+                        .append(", \"tieBreaks\": ").append(s.tieBreaks);
+                }
+                out.append('}').append(operation.ordinal() < Operation.values().length - 1 ? ",\n" : "\n");
+            }
+        }
+        return out.append("}\n").toString();
+    }
+
+    private static String json(Histogram histogram)
+    {
+        return String.format(Locale.ROOT, "{\"total\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d}",
+            histogram.sum(), histogram.mean(), histogram.percentile(50), histogram.percentile(90),
+            histogram.percentile(99), histogram.max());
+    }
+
+    // One line per operation, latencies in nanoseconds. The SPF columns are 0 for operations other than routingTable.
+    public String csv()
+    {
+        StringBuilder out = new StringBuilder("operation,count,rows,mean_ns,p50_ns,p90_ns,p99_ns,max_ns,settled,relaxed,pushes,decrease_keys,stale_pops,tie_breaks\n");
+        for (Operation operation : Operation.values())
+        {
+            Stats s = stats.get(operation);
+            synchronized (s)
+            {
+                out.append(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d%n", operation.label,
+                    s.latency.count(), s.rows, s.latency.mean(), s.latency.percentile(50), s.latency.percentile(90),
+                    s.latency.percentile(99), s.latency.max(), s.settled.sum(), s.relaxed.sum(), s.pushes,
+                    s.decreaseKeys, s.stalePops, s.tieBreaks));
+            }
+        }
+        return out.toString();
+    }
+}
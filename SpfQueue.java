@@ -0,0 +1,24 @@
+// Routers waiting to be settled by one SPF run, each with its tentative distance and hops.
+// poll() hands out the smallest distance first, the fewest hops among equal distances and the alphabetically first
+// router among equal distances and hops, which is the settle order of every ShortestPathEngine.
+public interface SpfQueue
+{
+    boolean isEmpty();
+
+    // Queue the router at this distance and hops, or move it up to them if it is queued already.
+    void push(int router, int distance, int hops);
+
+    // Remove and return the next router to settle. The queue must not be empty.
+    int poll();
+
+    // Empty the queue for another run over the same graph, in time proportional to what the last run left behind
+    // rather than to the capacity, so that one queue serves every run of a thread (see DijkstraEngine).
+    void clear();
+
+    // Entries skipped by poll() because their router was queued again at a smaller distance or with fewer hops. Queues
+    // with decrease-key have none.
+    default int stalePops()
+    {
+        return 0;
+    }
+}
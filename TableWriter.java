@@ -0,0 +1,196 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Output sink for the neighbour, LSDB and routing tables.
+// Rows are formatted straight into one reusable byte buffer: names are encoded character by character, numbers are
+// written digit by digit, and the buffer goes to the underlying stream in large chunks when it fills up or is flushed.
+// Without an underlying stream the buffer just grows, which is how a parallel task collects the output of one router.
+// The bytes are the same as PrintStream.println would have written for the same rows.
+public class TableWriter implements Flushable
+{
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int size;
+    // digits of a number, written backwards
+    private final byte[] digits = new byte[11];
+
+    // Write to the stream, flushing every capacity bytes.
+    public TableWriter(OutputStream out, int capacity)
+    {
+        this.out = out;
+        this.buffer = new byte[capacity];
+    }
+
+    // Keep everything in memory, see bytes() and size().
+    public TableWriter()
+    {
+        this(null, 256);
+    }
+
+    // Writer on the standard output file descriptor, which bypasses the locking of System.out.
+    public static TableWriter stdout()
+    {
+        return new TableWriter(new FileOutputStream(FileDescriptor.out), DEFAULT_CAPACITY);
+    }
+
+    public TableWriter text(String s)
+    {
+        int length = s.length();
+        ensure(length);
+        for (int i = 0; i < length; i++)
+        {
+            char c = s.charAt(i);
+            if (c >= 0x80)
+            {
+                // not plain ASCII, so let the charset encode the rest of the string
+                write(s.substring(i).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            buffer[size++] = (byte) c;
+        }
+        return this;
+    }
+
+    public TableWriter bar()
+    {
+        return character('|');
+    }
+
+    public TableWriter character(char c)
+    {
+        ensure(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    public TableWriter number(int value)
+    {
+        ensure(digits.length);
+        long v = value;
+        if (v < 0)
+        {
+            buffer[size++] = '-';
+            v = -v;
+        }
+        int count = 0;
+        do
+        {
+            digits[count++] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        while (v != 0);
+        while (count > 0)
+        {
+            buffer[size++] = digits[--count];
+        }
+        return this;
+    }
+
+    public TableWriter newLine()
+    {
+        ensure(LINE_SEPARATOR.length);
+        for (byte b : LINE_SEPARATOR)
+        {
+            buffer[size++] = b;
+        }
+        return this;
+    }
+
+    // Write a line holding just the text
+    public TableWriter line(String s)
+    {
+        return text(s).newLine();
+    }
+
+    public void write(byte[] bytes)
+    {
+        write(bytes, 0, bytes.length);
+    }
+
+    public void write(byte[] bytes, int offset, int length)
+    {
+        if (out != null && length > buffer.length)
+        {
+            // too large to buffer, so pass it straight through
+            flushBuffer();
+            try
+            {
+                out.write(bytes, offset, length);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    // Bytes written so far and not flushed, valid over [0, size())
+    public byte[] bytes()
+    {
+        return buffer;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void flush()
+    {
+        flushBuffer();
+        if (out != null)
+        {
+            try
+            {
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Make room for n more bytes, by flushing when there is a stream and by growing otherwise.
+    private void ensure(int n)
+    {
+        if (size + n <= buffer.length)
+        {
+            return;
+        }
+        if (out != null)
+        {
+            flushBuffer();
+        }
+        if (size + n > buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + n));
+        }
+    }
+
+    private void flushBuffer()
+    {
+        if (out == null || size == 0)
+        {
+            return;
+        }
+        try
+        {
+            out.write(buffer, 0, size);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        size = 0;
+    }
+}
@@ -1,51 +1,41 @@
 import java.io.*;
-import java.util.*;
+import java.nio.file.*;
 
-public class TopologyExtractor implements Serializable
+public class TopologyExtractor
 {
-    // Serialization is the process of converting an object's state into a byte stream, This is useful for saving an object's state to a file
-    class Edge implements Serializable 
-    {
-        String destination;
-        int weight;
-        private static final long serialVersionUID = 1L;
-        Edge(String destination, int weight) 
-        {
-            this.destination = destination;
-            this.weight = weight;
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    public static void main(String[] args) 
+    // The graph is saved in the binary topology snapshot format, whose header holds the counts.
+    // Only the header is mapped, so the counts are read in constant time however large the graph is.
+    // With --load the whole graph is loaded from the mapped file as well, and the counts come from the loaded graph.
+    public static void main(String[] args)
     {
         // Check if there exists graph file.
-        if (args.length != 1) 
+        boolean load = args.length == 2 && args[0].equals("--load");
+        if (args.length != 1 && !load)
         {
-            System.err.println("Usage: java TopologyExtractor <graph_file>");
+            System.err.println("Usage: java TopologyExtractor [--load] <graph_file>");
             System.exit(1);
         }
 
-        String graphFile = args[0];
-        Map<String, List<Edge>> graph = new HashMap<>();
-
-        // read the file and store it into variable by inputStream
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(graphFile))) 
+        Path graphFile = Paths.get(args[args.length - 1]);
+        try
         {
-            graph = (Map<String, List<Edge>>) ois.readObject();
-        } 
-        catch (IOException | ClassNotFoundException e) 
+            if (load)
+            {
+                CsrGraph graph = TopologySnapshot.read(graphFile);
+                System.out.println("Final number of nodes: " + graph.nodeCount());
+                System.out.println("Final number of edges: " + graph.edgeCount());
+                System.out.println("Connected components: " + graph.components().components());
+            }
+            else
+            {
+                TopologySnapshot.Header header = TopologySnapshot.readHeader(graphFile);
+                System.out.println("Final number of nodes: " + header.nodeCount);
+                System.out.println("Final number of edges: " + header.edgeCount);
+            }
+        }
+        catch (IOException e)
         {
             e.printStackTrace();
         }
-
-        Set<String> nodes = graph.keySet();
-        // Because our graph is undirected, every adjacent node is calculated twice
-        int numEdges = graph.values().stream().mapToInt(List::size).sum() / 2;
-
-        System.out.println("Final number of nodes: " + nodes.size());
-        System.out.println("Final number of edges: " + numEdges);
     }
 }
-
-
@@ -0,0 +1,381 @@
+import java.util.*;
+
+// Writes a synthetic input in the router / LINKSTATE / UPDATE / END format to stdout, the same for the same arguments.
+// Topologies, over routers R0 .. R(n-1):
+//   er     Erdos-Renyi G(n, p) with p = degree / (n - 1). Pairs are drawn by geometric skipping, so the time is
+//          proportional to the links written and no pair is stored
+//   grid   rows x columns mesh, with rows = floor(sqrt(n)) and n rounded down to a whole number of rows
+//   torus  the grid with its rows and columns wrapped around
+//   ring   every router linked to the next one
+//   ba     Barabasi-Albert scale-free graph, each new router attaching to degree / 2 routers picked in proportion to
+//          their degree. Picking by degree needs the endpoints of every link so far, so this one keeps 8 bytes per link
+//   isp    three tiers: a fully meshed core, aggregation routers homed to two core routers, and access routers homed
+//          to one aggregation router, or to two with probability 0.3. Links get cheaper towards the core
+// The UPDATE section has --updates lines. A line takes a link down (weight -1) with probability --failures, adds a
+// new router linked to an existing one with probability --new-routers, and otherwise gives a link a new weight, which
+// brings it back up if it was down. With probability --queries a line also names --query-routers routers whose tables
+// are printed, and with probability --route-queries a "QUERY S D" line for two random routers follows it. The links
+// that updates change are drawn from a fixed-size reservoir sample of all links, so the generator runs in constant
+// memory however many lines it writes (apart from ba, see above).
+// Usage: java TopologyGenerator <er|grid|torus|ring|ba|isp> [--routers=N] [--degree=D] [--weights=MIN-MAX]
+//            [--updates=N] [--failures=F] [--new-routers=F] [--queries=F] [--query-routers=K] [--route-queries=F]
+//            [--seed=S]
+public class TopologyGenerator
+{
+    // links the updates pick from
+    private static final int RESERVOIR = 1 << 16;
+
+    private final TableWriter out;
+    private final Random random;
+    private final int minWeight;
+    private final int maxWeight;
+
+    // reservoir sample of the links written so far, with their current weight or -1 while they are down
+    private final int[] from = new int[RESERVOIR];
+    private final int[] to = new int[RESERVOIR];
+    private final int[] weight = new int[RESERVOIR];
+    private int sampled;
+    private long links;
+
+    // routers so far, new ones are added by updates
+    private int routers;
+
+    public TopologyGenerator(TableWriter out, long seed, int minWeight, int maxWeight)
+    {
+        this.out = out;
+        this.random = new Random(seed);
+        this.minWeight = minWeight;
+        this.maxWeight = maxWeight;
+    }
+
+    public static void main(String[] args)
+    {
+        if (args.length == 0 || args[0].startsWith("--"))
+        {
+            System.err.println("Usage: java TopologyGenerator <er|grid|torus|ring|ba|isp> [--routers=N] [--degree=D] [--weights=MIN-MAX]"
+                + " [--updates=N] [--failures=F] [--new-routers=F] [--queries=F] [--query-routers=K] [--route-queries=F] [--seed=S]");
+            System.exit(1);
+        }
+        String kind = args[0];
+        int routers = Integer.parseInt(option(args, "--routers=", "1000"));
+        double degree = Double.parseDouble(option(args, "--degree=", "4"));
+        String[] weights = option(args, "--weights=", "1-100").split("-");
+        long updates = Long.parseLong(option(args, "--updates=", "0"));
+        double failures = Double.parseDouble(option(args, "--failures=", "0.1"));
+        double newRouters = Double.parseDouble(option(args, "--new-routers=", "0.01"));
+        double queries = Double.parseDouble(option(args, "--queries=", "0.01"));
+        int queryRouters = Integer.parseInt(option(args, "--query-routers=", "1"));
+        double routeQueries = Double.parseDouble(option(args, "--route-queries=", "0"));
+        long seed = Long.parseLong(option(args, "--seed=", "1"));
+
+        TableWriter out = TableWriter.stdout();
+        TopologyGenerator generator = new TopologyGenerator(out, seed, Integer.parseInt(weights[0]), Integer.parseInt(weights[1]));
+        switch (kind)
+        {
+            case "er":
+                generator.erdosRenyi(routers, degree);
+                break;
+            case "grid":
+                generator.grid(routers, false);
+                break;
+            case "torus":
+                generator.grid(routers, true);
+                break;
+            case "ring":
+                generator.ring(routers);
+                break;
+            case "ba":
+                generator.barabasiAlbert(routers, Math.max(1, (int) Math.round(degree / 2)));
+                break;
+            case "isp":
+                generator.isp(routers);
+                break;
+            default:
+                System.err.println("Unknown topology: " + kind);
+                System.exit(1);
+        }
+        generator.updates(updates, failures, newRouters, queries, queryRouters, routeQueries);
+        out.line("END");
+        out.flush();
+    }
+
+    // Value of the option with this prefix, or the default
+    private static String option(String[] args, String prefix, String fallback)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith(prefix))
+            {
+                return arg.substring(prefix.length());
+            }
+        }
+        return fallback;
+    }
+
+    public void erdosRenyi(int n, double degree)
+    {
+        begin(n);
+        double p = Math.min(1.0, degree / Math.max(1, n - 1));
+        if (p <= 0)
+        {
+            out.line("UPDATE");
+            return;
+        }
+        // Batagelj and Brandes: walk the pairs (v, w), w < v, in order and jump over a geometrically distributed
+        // number of pairs to the next one that gets a link.
+        double logQ = Math.log(1 - p);
+        int v = 1;
+        long w = -1;
+        while (v < n)
+        {
+            w += 1 + (p == 1.0 ? 0 : (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ));
+            while (w >= v && v < n)
+            {
+                w -= v;
+                v++;
+            }
+            if (v < n)
+            {
+                link(v, (int) w, randomWeight());
+            }
+        }
+        out.line("UPDATE");
+    }
+
+    public void grid(int n, boolean wrap)
+    {
+        int rows = Math.max(1, (int) Math.sqrt(n));
+        int columns = Math.max(1, n / rows);
+        begin(rows * columns);
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                int u = r * columns + c;
+                if (c + 1 < columns)
+                {
+                    link(u, u + 1, randomWeight());
+                }
+                else if (wrap && columns > 2)
+                {
+                    link(u, r * columns, randomWeight());
+                }
+                if (r + 1 < rows)
+                {
+                    link(u, u + columns, randomWeight());
+                }
+                else if (wrap && rows > 2)
+                {
+                    link(u, c, randomWeight());
+                }
+            }
+        }
+        out.line("UPDATE");
+    }
+
+    public void ring(int n)
+    {
+        begin(n);
+        for (int u = 0; u + 1 < n; u++)
+        {
+            link(u, u + 1, randomWeight());
+        }
+        if (n > 2)
+        {
+            link(n - 1, 0, randomWeight());
+        }
+        out.line("UPDATE");
+    }
+
+    public void barabasiAlbert(int n, int m)
+    {
+        begin(n);
+        int seedRouters = Math.min(n, m + 1);
+        // every link adds both its endpoints, so picking a uniform entry picks a router in proportion to its degree
+        int[] endpoints = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * ((long) seedRouters * seedRouters / 2 + (long) (n - seedRouters) * m))];
+        int count = 0;
+        for (int u = 0; u < seedRouters; u++)
+        {
+            for (int v = u + 1; v < seedRouters; v++)
+            {
+                link(u, v, randomWeight());
+                endpoints[count++] = u;
+                endpoints[count++] = v;
+            }
+        }
+        int[] picked = new int[m];
+        for (int u = seedRouters; u < n; u++)
+        {
+            int k = 0;
+            while (k < m)
+            {
+                int v = count == 0 ? random.nextInt(u) : endpoints[random.nextInt(count)];
+                boolean seen = false;
+                for (int i = 0; i < k; i++)
+                {
+                    seen |= picked[i] == v;
+                }
+                if (!seen)
+                {
+                    picked[k++] = v;
+                }
+            }
+            for (int i = 0; i < m; i++)
+            {
+                link(u, picked[i], randomWeight());
+                endpoints[count++] = u;
+                endpoints[count++] = picked[i];
+            }
+        }
+        out.line("UPDATE");
+    }
+
+    public void isp(int n)
+    {
+        begin(n);
+        int core = Math.max(2, Math.min(n, (int) Math.cbrt(n)));
+        int aggregation = Math.max(0, Math.min(n - core, (int) Math.sqrt(n)));
+        for (int u = 0; u < core; u++)
+        {
+            for (int v = u + 1; v < core; v++)
+            {
+                link(u, v, tierWeight(1, 5));
+            }
+        }
+        for (int a = 0; a < aggregation; a++)
+        {
+            link(core + a, a % core, tierWeight(5, 20));
+            link(core + a, (a + 1) % core, tierWeight(5, 20));
+        }
+        for (int u = core + aggregation; u < n; u++)
+        {
+            if (aggregation == 0)
+            {
+                link(u, u % core, tierWeight(10, 100));
+                continue;
+            }
+            int a = u % aggregation;
+            link(u, core + a, tierWeight(10, 100));
+            if (aggregation > 1 && random.nextDouble() < 0.3)
+            {
+                link(u, core + (a + 1) % aggregation, tierWeight(10, 100));
+            }
+        }
+        out.line("UPDATE");
+    }
+
+    public void updates(long count, double failures, double newRouters, double queries, int queryRouters, double routeQueries)
+    {
+        for (long line = 0; line < count; line++)
+        {
+            double kind = random.nextDouble();
+            if (kind < newRouters || sampled == 0)
+            {
+                // a new router comes up with a link to an existing one
+                int u = routers++;
+                int v = routers > 1 ? random.nextInt(routers - 1) : u;
+                int w = randomWeight();
+                sample(u, v, w);
+                write(u, v, w);
+            }
+            else
+            {
+                int slot = random.nextInt(sampled);
+                if (kind < newRouters + failures)
+                {
+                    // look a little for a link that is still up, one that is down already just goes down again
+                    for (int tries = 0; tries < 4 && weight[slot] == -1; tries++)
+                    {
+                        slot = random.nextInt(sampled);
+                    }
+                    weight[slot] = -1;
+                }
+                else
+                {
+                    int w = randomWeight();
+                    if (w == weight[slot] && maxWeight > minWeight)
+                    {
+                        // make sure the weight really changes
+                        w = w == maxWeight ? minWeight : w + 1;
+                    }
+                    weight[slot] = w;
+                }
+                write(from[slot], to[slot], weight[slot]);
+            }
+            if (random.nextDouble() < queries)
+            {
+                out.character(' ');
+                for (int k = 0; k < queryRouters; k++)
+                {
+                    if (k > 0)
+                    {
+                        out.character(',');
+                    }
+                    out.character('R').number(random.nextInt(routers));
+                }
+            }
+            out.newLine();
+            if (routeQueries > 0 && random.nextDouble() < routeQueries)
+            {
+                out.text("QUERY R").number(random.nextInt(routers)).text(" R").number(random.nextInt(routers)).newLine();
+            }
+        }
+    }
+
+    // Write the router section and start the LINKSTATE section
+    private void begin(int n)
+    {
+        routers = n;
+        for (int u = 0; u < n; u++)
+        {
+            out.character('R').number(u).newLine();
+        }
+        out.line("LINKSTATE");
+    }
+
+    // Write a LINKSTATE line and keep the link in the reservoir sample if it is drawn
+    private void link(int u, int v, int w)
+    {
+        sample(u, v, w);
+        write(u, v, w);
+        out.newLine();
+    }
+
+    private void write(int u, int v, int w)
+    {
+        out.character('R').number(u).text("-R").number(v).character(' ').number(w);
+    }
+
+    // Algorithm R: the k-th link replaces a random entry with probability RESERVOIR / k once the reservoir is full
+    private void sample(int u, int v, int w)
+    {
+        links++;
+        int slot;
+        if (sampled < RESERVOIR)
+        {
+            slot = sampled++;
+        }
+        else
+        {
+            long r = (long) (random.nextDouble() * links);
+            if (r >= RESERVOIR)
+            {
+                return;
+            }
+            slot = (int) r;
+        }
+        from[slot] = u;
+        to[slot] = v;
+        weight[slot] = w;
+    }
+
+    private int randomWeight()
+    {
+        return minWeight + random.nextInt(maxWeight - minWeight + 1);
+    }
+
+    private int tierWeight(int min, int max)
+    {
+        return min + random.nextInt(max - min + 1);
+    }
+}
@@ -0,0 +1,334 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// Durable mode: a write-ahead journal of topology changes plus periodic checkpoints, so a restarted run picks up
+// where the last one stopped instead of replaying the whole input.
+// The journal directory holds
+//   checkpoint.topo  the topology in the binary snapshot format
+//   checkpoint.meta  where in the input the checkpoint was taken
+//   journal.log      every change since the checkpoint, appended as it happens
+// As a listener the journal records every new router and every link change, and commit() closes the changes of one
+// input line with a marker holding the input offset after that line and the section the line was in. Records are
+// absolute (a router name, or the new weight of a link), so replaying one that is already in the checkpoint is harmless.
+// Markers are written to the file in groups and forced to disk every syncEvery lines (group commit). With syncEvery 0
+// every line is written to the file as it is committed but never forced, so it survives the JVM being killed and is
+// left to the operating system to put on disk. A checkpoint is taken every checkpointEvery lines, after which the
+// journal starts over.
+// On restart the checkpoint is loaded and the journal is replayed up to its last complete marker, dropping a torn tail.
+public class TopologyJournal implements TopologyListener, Closeable
+{
+    // Input sections, in the order they appear
+    public static final int ROUTERS = 0;
+    public static final int LINKSTATE = 1;
+    public static final int UPDATE = 2;
+
+    public static final int DEFAULT_SYNC_EVERY = 1024;
+    public static final int DEFAULT_CHECKPOINT_EVERY = 1 << 20;
+
+    private static final int MAGIC = 0x4c4e4a54;
+    private static final int VERSION = 1;
+    private static final byte NODE = 'N';
+    private static final byte LINK = 'L';
+    private static final byte COMMIT = 'C';
+
+    private final Path directory;
+    private final int syncEvery;
+    private final int checkpointEvery;
+
+    private CsrGraph graph;
+    private FileChannel journal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    // where the restored state ends in the input
+    private long inputOffset;
+    private int section;
+
+    private long linesSinceSync;
+    private long linesSinceCheckpoint;
+
+    // statistics
+    private long records;
+    private long syncs;
+    private long checkpoints;
+    private long replayedRecords;
+
+    public TopologyJournal(Path directory, int syncEvery, int checkpointEvery)
+    {
+        this.directory = directory;
+        this.syncEvery = syncEvery;
+        this.checkpointEvery = checkpointEvery;
+    }
+
+    // --durable=DIR turns the mode on, --journal-sync=N forces the journal to disk every N input lines (0 writes every
+    // line to the file and leaves forcing it to the operating system) and --checkpoint-every=N checkpoints every N input
+    // lines. Returns null without --durable.
+    public static TopologyJournal fromArgs(String[] args)
+    {
+        Path directory = null;
+        int syncEvery = DEFAULT_SYNC_EVERY;
+        int checkpointEvery = DEFAULT_CHECKPOINT_EVERY;
+        for (String arg : args)
+        {
+            if (arg.startsWith("--durable="))
+            {
+                directory = Paths.get(arg.substring("--durable=".length()));
+            }
+            else if (arg.startsWith("--journal-sync="))
+            {
+                syncEvery = Integer.parseInt(arg.substring("--journal-sync=".length()));
+            }
+            else if (arg.startsWith("--checkpoint-every="))
+            {
+                checkpointEvery = Integer.parseInt(arg.substring("--checkpoint-every=".length()));
+            }
+        }
+        return directory == null ? null : new TopologyJournal(directory, syncEvery, checkpointEvery);
+    }
+
+    // Load the checkpoint, replay the journal and start journalling changes of the returned graph.
+    public CsrGraph restore() throws IOException
+    {
+        Files.createDirectories(directory);
+        Path checkpoint = directory.resolve("checkpoint.topo");
+        Path meta = directory.resolve("checkpoint.meta");
+        graph = Files.exists(checkpoint) ? TopologySnapshot.read(checkpoint) : new CsrGraph();
+        if (Files.exists(meta))
+        {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(meta)))
+            {
+                inputOffset = in.readLong();
+                section = in.readInt();
+            }
+        }
+
+        journal = FileChannel.open(directory.resolve("journal.log"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = replay();
+        // drop whatever follows the last complete line, it is read from the input again
+        journal.truncate(end);
+        journal.position(end);
+        if (end == 0)
+        {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+        graph.addListener(this);
+        return graph;
+    }
+
+    // Input offset to continue reading from
+    public long inputOffset()
+    {
+        return inputOffset;
+    }
+
+    // Section of the input the next line is in
+    public int section()
+    {
+        return section;
+    }
+
+    @Override
+    public void nodeAdded(int id)
+    {
+        byte[] name = graph.name(id).getBytes(StandardCharsets.UTF_8);
+        ensure(5 + name.length);
+        buffer.put(NODE).putInt(name.length).put(name);
+        records++;
+    }
+
+    @Override
+    public void linkChanged(int u, int v, int oldWeight, int newWeight)
+    {
+        ensure(13);
+        buffer.put(LINK).putInt(u).putInt(v).putInt(newWeight);
+        records++;
+    }
+
+    // The input line ending at offset has been applied. Syncs and checkpoints when they are due.
+    public void commit(long offset, int section) throws IOException
+    {
+        ensure(13);
+        buffer.put(COMMIT).putLong(offset).putInt(section);
+        inputOffset = offset;
+        this.section = section;
+        if (syncEvery == 0)
+        {
+            drain();
+        }
+        else if (++linesSinceSync >= syncEvery)
+        {
+            sync();
+        }
+        if (++linesSinceCheckpoint >= checkpointEvery)
+        {
+            checkpoint();
+        }
+    }
+
+    // Write out the journal buffer and force it to disk.
+    public void sync() throws IOException
+    {
+        drain();
+        journal.force(false);
+        syncs++;
+        linesSinceSync = 0;
+    }
+
+    // Save the topology as the new checkpoint and start the journal over.
+    public void checkpoint() throws IOException
+    {
+        sync();
+        Path checkpoint = directory.resolve("checkpoint.topo");
+        Path temporary = directory.resolve("checkpoint.topo.tmp");
+        TopologySnapshot.write(graph, temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+        {
+            channel.force(true);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Path meta = directory.resolve("checkpoint.meta");
+        Path temporaryMeta = directory.resolve("checkpoint.meta.tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporaryMeta)))
+        {
+            out.writeLong(inputOffset);
+            out.writeInt(section);
+        }
+        Files.move(temporaryMeta, meta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Only now is it safe to drop the journal. A crash before this point replays records the checkpoint already has.
+        journal.truncate(0);
+        journal.position(0);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        checkpoints++;
+        linesSinceCheckpoint = 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (journal != null)
+        {
+            sync();
+            journal.close();
+        }
+    }
+
+    public String statistics()
+    {
+        return "Journal: " + records + " records, " + syncs + " syncs, " + checkpoints + " checkpoints, "
+            + replayedRecords + " records replayed on restart";
+    }
+
+    // Apply the journal to the graph up to its last complete marker. Returns the journal position just after it.
+    private long replay() throws IOException
+    {
+        if (journal.size() < 8)
+        {
+            return 0;
+        }
+        // The first pass finds the last complete marker, the second applies the records before it, so a line that was
+        // cut short is left out entirely.
+        long committed = read(-1);
+        read(committed);
+        return committed;
+    }
+
+    // Read the journal from the start, applying the records before position applyUntil unless it is negative.
+    // Returns the position just after the last complete marker.
+    private long read(long applyUntil) throws IOException
+    {
+        long size = journal.size();
+        journal.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(journal), 1 << 16));
+        if (Integer.reverseBytes(in.readInt()) != MAGIC || Integer.reverseBytes(in.readInt()) != VERSION)
+        {
+            throw new IOException("Not a topology journal: " + directory.resolve("journal.log"));
+        }
+        long position = 8;
+        long committed = 8;
+        try
+        {
+            while (position < size && (applyUntil < 0 || position < applyUntil))
+            {
+                byte type = in.readByte();
+                boolean apply = applyUntil >= 0;
+                if (type == NODE)
+                {
+                    byte[] name = new byte[Integer.reverseBytes(in.readInt())];
+                    in.readFully(name);
+                    if (apply)
+                    {
+                        graph.addNode(new String(name, StandardCharsets.UTF_8));
+                    }
+                    position += 5 + name.length;
+                }
+                else if (type == LINK)
+                {
+                    int u = Integer.reverseBytes(in.readInt());
+                    int v = Integer.reverseBytes(in.readInt());
+                    int weight = Integer.reverseBytes(in.readInt());
+                    if (apply && weight == -1)
+                    {
+                        graph.removeLink(u, v);
+                    }
+                    else if (apply)
+                    {
+                        graph.addLink(u, v, weight);
+                    }
+                    position += 13;
+                }
+                else if (type == COMMIT)
+                {
+                    long offset = Long.reverseBytes(in.readLong());
+                    int lineSection = Integer.reverseBytes(in.readInt());
+                    if (apply)
+                    {
+                        inputOffset = offset;
+                        section = lineSection;
+                    }
+                    position += 13;
+                    committed = position;
+                }
+                else
+                {
+                    break;
+                }
+                if (apply)
+                {
+                    replayedRecords++;
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            // the last record was only partly written
+        }
+        return committed;
+    }
+
+    private void ensure(int n)
+    {
+        if (buffer.remaining() < n)
+        {
+            try
+            {
+                drain();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            journal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
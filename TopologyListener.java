@@ -0,0 +1,9 @@
+// Callback for changes applied to a CsrGraph. Both methods run after the change is visible in the graph.
+public interface TopologyListener
+{
+    // A new router was interned with the given id. It has no links yet.
+    void nodeAdded(int id);
+
+    // The link u-v changed from oldWeight to newWeight, where -1 means the link does not exist on that side of the change.
+    void linkChanged(int u, int v, int oldWeight, int newWeight);
+}
@@ -0,0 +1,205 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// Versioned binary file format for a topology, replacing Java serialization of the graph.
+// All numbers are little-endian. The file is a fixed header followed by int arrays and the name bytes:
+//   header      magic "TOPO", version, node count, edge count, arc count, name byte count (long)
+//   nameOffsets int[nodes + 1], name of router u is nameBytes[nameOffsets[u] .. nameOffsets[u + 1]) in UTF-8
+//   offsets     int[nodes + 1], the CSR row bounds
+//   targets     int[arcs]
+//   weights     int[arcs]
+//   nameBytes   byte[name byte count]
+// The counts sit in the header, so they can be read without touching the rest of the file, and the arrays are read
+// back in bulk from a memory mapping of the file.
+public class TopologySnapshot
+{
+    public static final int MAGIC = 0x4f504f54;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 28;
+
+    // Largest part of a section mapped at once
+    private static final int MAP_CHUNK = 1 << 28;
+
+    // Counts from the header of a snapshot file
+    public static class Header
+    {
+        public final int nodeCount;
+        public final int edgeCount;
+        public final int arcCount;
+        public final long nameBytes;
+
+        Header(int nodeCount, int edgeCount, int arcCount, long nameBytes)
+        {
+            this.nodeCount = nodeCount;
+            this.edgeCount = edgeCount;
+            this.arcCount = arcCount;
+            this.nameBytes = nameBytes;
+        }
+    }
+
+    public static void write(CsrGraph graph, Path path) throws IOException
+    {
+        int nodeCount = graph.nodeCount();
+        byte[][] names = new byte[nodeCount][];
+        long nameBytes = 0;
+        int arcCount = 0;
+        for (int u = 0; u < nodeCount; u++)
+        {
+            names[u] = graph.name(u).getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[u].length;
+            arcCount += graph.degree(u);
+        }
+        if (nameBytes > Integer.MAX_VALUE)
+        {
+            throw new IOException("Router names are too long for a topology snapshot");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(graph.edgeCount()).putInt(arcCount).putLong(nameBytes);
+
+            int position = 0;
+            for (int u = 0; u <= nodeCount; u++)
+            {
+                putInt(channel, buffer, position);
+                position += u < nodeCount ? names[u].length : 0;
+            }
+            position = 0;
+            for (int u = 0; u <= nodeCount; u++)
+            {
+                putInt(channel, buffer, position);
+                position += u < nodeCount ? graph.degree(u) : 0;
+            }
+            for (int u = 0; u < nodeCount; u++)
+            {
+                for (int i = 0, degree = graph.degree(u); i < degree; i++)
+                {
+                    putInt(channel, buffer, graph.target(u, i));
+                }
+            }
+            for (int u = 0; u < nodeCount; u++)
+            {
+                for (int i = 0, degree = graph.degree(u); i < degree; i++)
+                {
+                    putInt(channel, buffer, graph.weight(u, i));
+                }
+            }
+            for (byte[] name : names)
+            {
+                int i = 0;
+                while (i < name.length)
+                {
+                    if (!buffer.hasRemaining())
+                    {
+                        drain(channel, buffer);
+                    }
+                    int length = Math.min(name.length - i, buffer.remaining());
+                    buffer.put(name, i, length);
+                    i += length;
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    // Read only the header, which maps just the first bytes of the file.
+    public static Header readHeader(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            return readHeader(channel);
+        }
+    }
+
+    public static CsrGraph read(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            Header header = readHeader(channel);
+            long position = HEADER_BYTES;
+            int[] nameOffsets = readInts(channel, position, header.nodeCount + 1);
+            position += 4L * (header.nodeCount + 1);
+            int[] offsets = readInts(channel, position, header.nodeCount + 1);
+            position += 4L * (header.nodeCount + 1);
+            int[] targets = readInts(channel, position, header.arcCount);
+            position += 4L * header.arcCount;
+            int[] weights = readInts(channel, position, header.arcCount);
+            position += 4L * header.arcCount;
+            byte[] nameBytes = readBytes(channel, position, (int) header.nameBytes);
+
+            String[] names = new String[header.nodeCount];
+            for (int u = 0; u < header.nodeCount; u++)
+            {
+                names[u] = new String(nameBytes, nameOffsets[u], nameOffsets[u + 1] - nameOffsets[u], StandardCharsets.UTF_8);
+            }
+            return CsrGraph.fromCsr(names, offsets, targets, weights);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException
+    {
+        if (channel.size() < HEADER_BYTES)
+        {
+            throw new IOException("Not a topology snapshot: the file is too short");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != MAGIC)
+        {
+            throw new IOException("Not a topology snapshot: bad magic number");
+        }
+        int version = header.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported topology snapshot version: " + version);
+        }
+        return new Header(header.getInt(), header.getInt(), header.getInt(), header.getLong());
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException
+    {
+        int[] values = new int[count];
+        for (int done = 0; done < count; )
+        {
+            int length = Math.min(count - done, MAP_CHUNK / 4);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * length);
+            chunk.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, length);
+            done += length;
+        }
+        return values;
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int count) throws IOException
+    {
+        byte[] values = new byte[count];
+        for (int done = 0; done < count; )
+        {
+            int length = Math.min(count - done, MAP_CHUNK);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + done, length).get(values, done, length);
+            done += length;
+        }
+        return values;
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException
+    {
+        if (buffer.remaining() < 4)
+        {
+            drain(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,175 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Readers computing routing tables and LSDBs while one writer keeps changing links, the way the router answers
+// queries while it ingests UPDATE lines. Each group runs READERS reader threads and one writer thread:
+//   published  readers take the last snapshot of a PublishedTopology and read it without locks, and the writer
+//              publishes a new version after every batch of changes
+//   locked     readers hold the read lock of a ReentrantReadWriteLock on the live graph, and the writer holds the
+//              write lock for every batch
+// JMH reports the throughput of the readers and of the writer of each group separately.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class ConcurrentReadBenchmark
+{
+    public static final int READERS = 3;
+    // link changes the writer makes between two publications
+    public static final int BATCH = 16;
+
+    @State(Scope.Benchmark)
+    public static class Shared extends Topology
+    {
+        @Param({"1000", "10000"})
+        public int routers;
+
+        public Object published;
+        public final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // router pairs the writer changes, with the weight each link had, or -1 where there was no link, and whether
+        // the pair is changed from that right now
+        private int[] from;
+        private int[] to;
+        private int[] weight;
+        private boolean[] changed;
+        private int next;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            published = Programs.published(graph);
+            Random random = new Random(routers);
+            from = new int[SAMPLES];
+            to = new int[SAMPLES];
+            weight = new int[SAMPLES];
+            changed = new boolean[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                from[i] = random.nextInt(routers);
+                to[i] = (from[i] + 1 + random.nextInt(routers - 1)) % routers;
+                weight[i] = Programs.linkWeight(graph, from[i], to[i]);
+            }
+        }
+
+        // A batch of changes, each of which is undone the next time its pair comes round
+        void changeLinks()
+        {
+            for (int b = 0; b < BATCH; b++)
+            {
+                next = (next + 1) & (SAMPLES - 1);
+                int u = from[next];
+                int v = to[next];
+                if (weight[next] == -1)
+                {
+                    if (changed[next])
+                    {
+                        Programs.removeLink(graph, u, v);
+                    }
+                    else
+                    {
+                        Programs.addLink(graph, u, v, 1);
+                    }
+                }
+                else
+                {
+                    Programs.addLink(graph, u, v, changed[next] ? weight[next] : weight[next] + 1);
+                }
+                changed[next] = !changed[next];
+            }
+        }
+
+        // A router to ask for, taken at random since the readers run at the same time
+        String anyRouter()
+        {
+            return samples[ThreadLocalRandom.current().nextInt(SAMPLES)];
+        }
+    }
+
+    // Each reader thread computes with its own program, the way every worker of --parallel renders into its own buffer
+    @State(Scope.Thread)
+    public static class Reader
+    {
+        final Programs.Engine engine = new Programs.Engine("indexed");
+        final Object out = Programs.nullWriter();
+
+        int read(String router, Object graph)
+        {
+            engine.printLsDatabase(router, engine.computeLsDatabase(router, graph), out);
+            return engine.computeRoutingTable(router, graph).size();
+        }
+    }
+
+    @Benchmark
+    @Group("published")
+    @GroupThreads(READERS)
+    public int publishedRead(Shared shared, Reader reader)
+    {
+        return reader.read(shared.anyRouter(), Programs.current(shared.published));
+    }
+
+    @Benchmark
+    @Group("published")
+    @GroupThreads(1)
+    public Object publishedWrite(Shared shared)
+    {
+        shared.changeLinks();
+        return Programs.publish(shared.published);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(READERS)
+    public int lockedRead(Shared shared, Reader reader)
+    {
+        shared.lock.readLock().lock();
+        try
+        {
+            return reader.read(shared.anyRouter(), shared.graph);
+        }
+        finally
+        {
+            shared.lock.readLock().unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWrite(Shared shared)
+    {
+        shared.lock.writeLock().lock();
+        try
+        {
+            shared.changeLinks();
+        }
+        finally
+        {
+            shared.lock.writeLock().unlock();
+        }
+    }
+}
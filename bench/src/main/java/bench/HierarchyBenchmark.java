@@ -0,0 +1,135 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Route queries of --hierarchy against the other ways of answering them: bidirectional Dijkstra, the engine's SPF
+// stopped at the destination, and a whole routing table, with the time to build the hierarchy.
+// The grid has a hierarchy much like road maps, the random mesh has none, and its queries show what --hierarchy costs
+// when it gives up and falls back to bidirectional Dijkstra.
+// updateBurst makes a burst of link changes with a query after it, and takes them back with another query, so it
+// measures the queries the hierarchy is patched through or rebuilt for. The hierarchy's statistics, with how many
+// changes it was patched through, are printed at the end of each trial, and every sampled route is checked against
+// the routing table after each iteration.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class HierarchyBenchmark
+{
+    public static final int UPDATE_BURST = 10;
+
+    @State(Scope.Benchmark)
+    public static class Routes extends Layout
+    {
+        @Param({"10000", "100000"})
+        public int routers;
+
+        // ShortestPathEngine
+        public Object engine;
+        public Programs.Engine program;
+        public Programs.Hierarchy hierarchy;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            engine = Programs.engine("indexed");
+            program = new Programs.Engine("indexed");
+            hierarchy = new Programs.Hierarchy(graph);
+            // the first query builds the hierarchy
+            hierarchy.route(names[0], names[names.length - 1]);
+            check();
+        }
+
+        @TearDown(Level.Iteration)
+        public void check()
+        {
+            undo();
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                String[] expected = Programs.route(engine, sources[i], destinations[i], graph);
+                String[] actual = hierarchy.route(sources[i], destinations[i]);
+                if (!Arrays.equals(expected, actual))
+                {
+                    throw new IllegalStateException("Route from " + sources[i] + " to " + destinations[i] + " is "
+                        + Arrays.toString(actual) + ", the routing table has " + Arrays.toString(expected));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void report()
+        {
+            System.out.println(hierarchy.statistics());
+        }
+    }
+
+    @Benchmark
+    public Object hierarchy(Routes routes)
+    {
+        int i = routes.next();
+        return routes.hierarchy.route(routes.sources[i], routes.destinations[i]);
+    }
+
+    @Benchmark
+    public Object bidirectional(Routes routes)
+    {
+        int i = routes.next();
+        return routes.program.computeRoute(routes.sources[i], routes.destinations[i], routes.graph);
+    }
+
+    @Benchmark
+    public Object spfToDestination(Routes routes)
+    {
+        int i = routes.next();
+        return Programs.route(routes.engine, routes.sources[i], routes.destinations[i], routes.graph);
+    }
+
+    @Benchmark
+    public Object routingTable(Routes routes)
+    {
+        return routes.program.computeRoutingTable(routes.sources[routes.next()], routes.graph);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object build(Routes routes)
+    {
+        return Programs.contractionHierarchy(routes.graph);
+    }
+
+    @Benchmark
+    public Object updateBurst(Routes routes)
+    {
+        for (int k = 0; k < UPDATE_BURST; k++)
+        {
+            routes.change();
+        }
+        int i = routes.next();
+        routes.hierarchy.route(routes.sources[i], routes.destinations[i]);
+        routes.undo();
+        i = routes.next();
+        return routes.hierarchy.route(routes.sources[i], routes.destinations[i]);
+    }
+}
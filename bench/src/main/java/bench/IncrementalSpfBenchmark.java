@@ -0,0 +1,145 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Update latency of --incremental against a full recompute of the same trees. Both make one random link change, the
+// kind an UPDATE line makes, and then have the trees of keptTrees routers up to date: incremental repairs its kept
+// trees as the change is applied, fullRecompute computes them again from scratch. The change is timed on both sides.
+// The kept trees are checked against the routing table after each iteration, before and after the changes are taken
+// back, and the repair statistics are printed at the end of each trial.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class IncrementalSpfBenchmark
+{
+    public abstract static class Trees extends Layout
+    {
+        @Param({"10000", "100000"})
+        public int routers;
+
+        @Param({"8"})
+        public int keptTrees;
+
+        public Programs.Incremental spf;
+        public int[] roots;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            spf = new Programs.Incremental(graph);
+            roots = new int[keptTrees];
+            for (int k = 0; k < keptTrees; k++)
+            {
+                roots[k] = random.nextInt(names.length);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Kept extends Trees
+    {
+        public Programs.Engine program;
+
+        @Override
+        protected void built()
+        {
+            super.built();
+            program = new Programs.Engine("indexed");
+            for (int root : roots)
+            {
+                spf.tree(root);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void check()
+        {
+            compare();
+            undo();
+            compare();
+        }
+
+        private void compare()
+        {
+            for (int root : roots)
+            {
+                List<?> expected = program.computeRoutingTable(names[root], graph);
+                List<?> actual = spf.routes(root);
+                for (int i = 0; i < Math.max(expected.size(), actual.size()); i++)
+                {
+                    Object[] e = i < expected.size() ? (Object[]) expected.get(i) : null;
+                    Object[] a = i < actual.size() ? (Object[]) actual.get(i) : null;
+                    if (!Arrays.equals(e, a))
+                    {
+                        throw new IllegalStateException("Repaired tree of " + names[root] + " has " + Arrays.toString(a)
+                            + ", the routing table has " + Arrays.toString(e));
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void report()
+        {
+            System.out.println(spf.statistics());
+        }
+    }
+
+    // Keeps no trees, so applying a change repairs none
+    @State(Scope.Benchmark)
+    public static class Full extends Trees
+    {
+        @TearDown(Level.Iteration)
+        public void restore()
+        {
+            undo();
+        }
+    }
+
+    @Benchmark
+    public Object incremental(Kept trees)
+    {
+        trees.change();
+        Object tree = null;
+        for (int root : trees.roots)
+        {
+            tree = trees.spf.tree(root);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public Object fullRecompute(Full trees)
+    {
+        trees.change();
+        Object tree = null;
+        for (int root : trees.roots)
+        {
+            tree = trees.spf.computeTree(root);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,197 @@
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Restarting a --durable run against replaying its whole input, each a whole run of Dijkstra.
+//   links  LINKSTATE links of the random input, with links / 8 routers and links / 10 UPDATE lines
+//   tail   UPDATE lines left after the stop
+// A durable run is stopped before the last tail updates once per trial, which leaves a checkpoint plus a journal tail
+// behind: it checkpoints every three quarters of the lines up to the stop, so there is one checkpoint and a journal
+// after it whatever the size. restart loads a copy of them, replays the journal and reads only the rest of the input,
+// fullReplay reads the whole input. The topology each run saves is compared byte for byte with the one of a full
+// replay after each iteration.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class JournalBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Input
+    {
+        @Param({"100000", "1000000"})
+        public int links;
+
+        @Param({"10000"})
+        public int tail;
+
+        public Path work;
+        public Path input;
+        public String checkpointEvery;
+        // topology saved by a full replay
+        public byte[] expected;
+        // the program for the next run, and the journal directory restart starts from
+        public Programs.Engine program;
+        public Path durable;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException
+        {
+            int routers = Math.max(2, links / 8);
+            int updates = Math.max(tail, links / 10);
+            work = Files.createTempDirectory("journal-bench");
+            input = work.resolve("input.txt");
+            Path prefix = work.resolve("prefix.txt");
+            writeInput(input, prefix, routers, updates, new Random(links));
+
+            // router lines, LINKSTATE, links, UPDATE and the updates before the stop
+            long prefixLines = routers + 1L + links + 1L + (updates - tail);
+            checkpointEvery = "--checkpoint-every=" + Math.max(1, prefixLines * 3 / 4);
+            new Programs.Engine("linear").run(new String[] {"--durable=" + work.resolve("stopped"), checkpointEvery, prefix.toString()},
+                work.resolve("stopped.topo").toString());
+            new Programs.Engine("linear").run(new String[] {input.toString()}, work.resolve("full.topo").toString());
+            expected = Files.readAllBytes(work.resolve("full.topo"));
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() throws IOException
+        {
+            program = new Programs.Engine("linear");
+            durable = work.resolve("durable");
+            delete(durable);
+            Files.createDirectories(durable);
+            try (Stream<Path> files = Files.list(work.resolve("stopped")))
+            {
+                for (Path file : (Iterable<Path>) files::iterator)
+                {
+                    Files.copy(file, durable.resolve(file.getFileName()));
+                }
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void check() throws IOException
+        {
+            for (String name : new String[] {"restart.topo", "replay.topo"})
+            {
+                Path saved = work.resolve(name);
+                if (Files.exists(saved) && !Arrays.equals(expected, Files.readAllBytes(saved)))
+                {
+                    throw new IllegalStateException("The topology in " + saved + " differs from the one of a full replay");
+                }
+                Files.deleteIfExists(saved);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void clean() throws IOException
+        {
+            delete(work);
+        }
+
+        // The whole input, and the same input cut before its last tail updates without the END line.
+        private void writeInput(Path input, Path prefix, int routers, int updates, Random random) throws IOException
+        {
+            try (Writer all = Files.newBufferedWriter(input, StandardCharsets.US_ASCII);
+                 Writer cut = Files.newBufferedWriter(prefix, StandardCharsets.US_ASCII))
+            {
+                StringBuilder line = new StringBuilder();
+                for (int r = 0; r < routers; r++)
+                {
+                    write(all, cut, line.append('R').append(r).append('\n'));
+                }
+                write(all, cut, line.append("LINKSTATE\n"));
+                for (int l = 0; l < links; l++)
+                {
+                    int u = l < routers - 1 ? l + 1 : random.nextInt(routers);
+                    int v = l < routers - 1 ? random.nextInt(l + 1) : random.nextInt(routers);
+                    write(all, cut, line.append('R').append(u).append("-R").append(v).append(' ').append(1 + random.nextInt(100)).append('\n'));
+                }
+                write(all, cut, line.append("UPDATE\n"));
+                for (int l = 0; l < updates; l++)
+                {
+                    int weight = random.nextInt(8) == 0 ? -1 : 1 + random.nextInt(100);
+                    line.append('R').append(random.nextInt(routers)).append("-R").append(random.nextInt(routers)).append(' ').append(weight).append('\n');
+                    if (l < updates - tail)
+                    {
+                        write(all, cut, line);
+                    }
+                    else
+                    {
+                        all.append(line);
+                        line.setLength(0);
+                    }
+                }
+                all.append("END\n");
+            }
+        }
+
+        private static void write(Writer all, Writer cut, StringBuilder line) throws IOException
+        {
+            all.append(line);
+            cut.append(line);
+            line.setLength(0);
+        }
+
+        private static void delete(Path path) throws IOException
+        {
+            if (!Files.exists(path))
+            {
+                return;
+            }
+            try (Stream<Path> paths = Files.walk(path))
+            {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                    try
+                    {
+                        Files.delete(p);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public Object restart(Input input)
+    {
+        input.program.run(new String[] {"--durable=" + input.durable, input.checkpointEvery, input.input.toString()},
+            input.work.resolve("restart.topo").toString());
+        return input.program;
+    }
+
+    @Benchmark
+    public Object fullReplay(Input input)
+    {
+        input.program.run(new String[] {input.input.toString()}, input.work.resolve("replay.topo").toString());
+        return input.program;
+    }
+}
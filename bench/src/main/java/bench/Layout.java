@@ -0,0 +1,189 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Grid or random mesh, built once per trial, for the benchmarks whose results depend on the shape of the topology
+// rather than on its density.
+//   routers  number of routers, declared by each subclass. A grid takes the largest square that fits
+//   layout   grid links every router to the ones right of and below it, which gives a hierarchy much like road maps.
+//            mesh gives every router about 4 links to random others, which gives none
+// Link weights are drawn from 1..100.
+// change() makes the kind of random link change an UPDATE line makes, and undo() takes the changes back, last first,
+// so that a benchmark can make changes however long it runs and still measure the same topology.
+@State(Scope.Benchmark)
+public abstract class Layout
+{
+    public static final int MESH_DEGREE = 4;
+    // Router pairs that are asked about, taken in turn so that no single route is measured
+    public static final int SAMPLES = 64;
+
+    @Param({"grid", "mesh"})
+    public String layout;
+
+    // CsrGraph
+    public Object graph;
+    public String[] names;
+    public String[] sources;
+    public String[] destinations;
+    public Random random;
+    private int next;
+
+    // changes not taken back yet, as router pairs and the weight each link had before, or -1 where there was no link
+    private int[] changedFrom = new int[16];
+    private int[] changedTo = new int[16];
+    private int[] changedWeight = new int[16];
+    private int changes;
+
+    public abstract int routers();
+
+    @Setup(Level.Trial)
+    public void build()
+    {
+        int routers = routers();
+        random = new Random(routers * 31L + layout.hashCode());
+        graph = Programs.newGraph();
+        if (layout.equals("grid"))
+        {
+            int side = Math.max(2, (int) Math.sqrt(routers));
+            addRouters(side * side);
+            for (int row = 0; row < side; row++)
+            {
+                for (int column = 0; column < side; column++)
+                {
+                    int u = row * side + column;
+                    if (column + 1 < side)
+                    {
+                        Programs.addLink(graph, u, u + 1, 1 + random.nextInt(100));
+                    }
+                    if (row + 1 < side)
+                    {
+                        Programs.addLink(graph, u, u + side, 1 + random.nextInt(100));
+                    }
+                }
+            }
+        }
+        else
+        {
+            addRouters(routers);
+            for (int u = 0; u < routers; u++)
+            {
+                for (int k = 0; k < MESH_DEGREE / 2; k++)
+                {
+                    int v = random.nextInt(routers);
+                    if (v != u)
+                    {
+                        Programs.addLink(graph, u, v, 1 + random.nextInt(100));
+                    }
+                }
+            }
+        }
+        Programs.compact(graph);
+
+        sources = new String[SAMPLES];
+        destinations = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            sources[i] = names[random.nextInt(names.length)];
+            destinations[i] = names[random.nextInt(names.length)];
+        }
+        built();
+    }
+
+    private void addRouters(int routers)
+    {
+        names = new String[routers];
+        for (int u = 0; u < routers; u++)
+        {
+            names[u] = "R" + u;
+            Programs.addNode(graph, names[u]);
+        }
+    }
+
+    // Called at the end of build(), for the setup a benchmark needs on top of the topology
+    protected void built()
+    {
+    }
+
+    // Index of the next router pair to ask about
+    public int next()
+    {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    // A random link gets cheaper, dearer or goes down, or a new one comes up
+    public void change()
+    {
+        int u = random.nextInt(names.length);
+        int degree = Programs.degree(graph, u);
+        int v;
+        int weight;
+        if (degree > 0 && random.nextInt(5) > 0)
+        {
+            int i = random.nextInt(degree);
+            v = Programs.target(graph, u, i);
+            int oldWeight = Programs.weight(graph, u, i);
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    weight = Math.max(1, oldWeight / 2);
+                    break;
+                case 1:
+                    weight = oldWeight * 2 + 1;
+                    break;
+                default:
+                    weight = -1;
+                    break;
+            }
+        }
+        else
+        {
+            v = random.nextInt(names.length);
+            weight = 1 + random.nextInt(100);
+            if (v == u)
+            {
+                return;
+            }
+        }
+        if (changes == changedFrom.length)
+        {
+            changedFrom = Arrays.copyOf(changedFrom, changes * 2);
+            changedTo = Arrays.copyOf(changedTo, changes * 2);
+            changedWeight = Arrays.copyOf(changedWeight, changes * 2);
+        }
+        changedFrom[changes] = u;
+        changedTo[changes] = v;
+        changedWeight[changes] = Programs.linkWeight(graph, u, v);
+        changes++;
+        setLink(u, v, weight);
+    }
+
+    // Take back every change not taken back yet, last first
+    public void undo()
+    {
+        while (changes > 0)
+        {
+            changes--;
+            setLink(changedFrom[changes], changedTo[changes], changedWeight[changes]);
+        }
+    }
+
+    private void setLink(int u, int v, int weight)
+    {
+        if (weight == -1)
+        {
+            Programs.removeLink(graph, u, v);
+        }
+        else
+        {
+            Programs.addLink(graph, u, v, weight);
+        }
+    }
+}
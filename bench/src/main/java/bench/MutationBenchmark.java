@@ -0,0 +1,106 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Topology changes as LINKSTATE and UPDATE lines make them, with the component and LSDB bookkeeping they bring.
+// Each change is undone by a later one, so the topology stays the same size however long the benchmark runs.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class MutationBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Mutations extends Topology
+    {
+        @Param({"100", "1000", "10000", "100000", "1000000"})
+        public int routers;
+
+        // router pairs to change, with the weight each link had, or -1 where there was no link
+        public int[] from;
+        public int[] to;
+        public int[] weight;
+        private int next;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            Random random = new Random(routers);
+            from = new int[SAMPLES];
+            to = new int[SAMPLES];
+            weight = new int[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                from[i] = random.nextInt(routers);
+                to[i] = (from[i] + 1 + random.nextInt(routers - 1)) % routers;
+                weight[i] = Programs.linkWeight(graph, from[i], to[i]);
+            }
+        }
+
+        public int next()
+        {
+            next = (next + 1) & (SAMPLES - 1);
+            return next;
+        }
+    }
+
+    // An existing link gets a new weight and then the old one back, a missing one is added and removed again.
+    @Benchmark
+    public void updateLink(Mutations mutations)
+    {
+        int i = mutations.next();
+        int u = mutations.from[i];
+        int v = mutations.to[i];
+        int weight = mutations.weight[i];
+        if (weight == -1)
+        {
+            Programs.addLink(mutations.graph, u, v, 1);
+            Programs.removeLink(mutations.graph, u, v);
+        }
+        else
+        {
+            Programs.addLink(mutations.graph, u, v, weight + 1);
+            Programs.addLink(mutations.graph, u, v, weight);
+        }
+    }
+
+    // An existing link goes down and comes back, a missing one comes up and goes down again.
+    // Taking a link down searches for another path between its routers to see whether the component splits.
+    @Benchmark
+    public void removeLink(Mutations mutations)
+    {
+        int i = mutations.next();
+        int u = mutations.from[i];
+        int v = mutations.to[i];
+        int weight = mutations.weight[i];
+        if (weight == -1)
+        {
+            Programs.addLink(mutations.graph, u, v, 1);
+            Programs.removeLink(mutations.graph, u, v);
+        }
+        else
+        {
+            Programs.removeLink(mutations.graph, u, v);
+            Programs.addLink(mutations.graph, u, v, weight);
+        }
+    }
+}
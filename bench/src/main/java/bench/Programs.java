@@ -0,0 +1,693 @@
+package bench;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+
+// The routing programs are in the default package, which a named package such as this one cannot import, and JMH
+// does not accept benchmarks in the default package. So the programs are reached through method handles, looked up
+// once. The graph handles are constants, so the JIT can inline through them like ordinary calls.
+final class Programs
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    static final Class<?> GRAPH = load("CsrGraph");
+    static final Class<?> WRITER = load("TableWriter");
+    static final Class<?> ROUTER = load("LinkStateRouter");
+    static final Class<?> ENGINE = load("ShortestPathEngine");
+    static final Class<?> COUNTERS = load("ShortestPathEngine$Counters");
+    static final Class<?> PUBLISHED = load("PublishedTopology");
+    static final Class<?> HIERARCHY = load("RouteHierarchy");
+    static final Class<?> INCREMENTAL = load("IncrementalSpf");
+    static final Class<?> TREE = load("IncrementalSpf$Tree");
+    static final Class<?> CONTRACTION = load("ContractionHierarchy");
+    static final Class<?> SIMULATION = load("RouterSimulation");
+
+    private static final MethodHandle NEW_GRAPH = constructor(GRAPH, MethodType.methodType(void.class));
+    private static final MethodHandle ADD_NODE = method(GRAPH, "addNode", int.class, String.class);
+    private static final MethodHandle ADD_LINK = method(GRAPH, "addLink", void.class, int.class, int.class, int.class);
+    private static final MethodHandle REMOVE_LINK = method(GRAPH, "removeLink", void.class, int.class, int.class);
+    private static final MethodHandle LINK_WEIGHT = method(GRAPH, "linkWeight", int.class, int.class, int.class);
+    private static final MethodHandle COMPACT = method(GRAPH, "compact", void.class);
+    private static final MethodHandle DEGREE = method(GRAPH, "degree", int.class, int.class);
+    private static final MethodHandle TARGET = method(GRAPH, "target", int.class, int.class, int.class);
+    private static final MethodHandle WEIGHT = method(GRAPH, "weight", int.class, int.class, int.class);
+    private static final MethodHandle NAMED_ENGINE = staticMethod(ENGINE, "named", ENGINE, String.class);
+    private static final MethodHandle ENGINE_ROUTE = method(ENGINE, "route", String[].class, String.class, String.class, GRAPH);
+    private static final MethodHandle COUNTED_TABLE = method(ENGINE, "routingTable", List.class, String.class, GRAPH, COUNTERS);
+    private static final MethodHandle NEW_COUNTERS = constructor(COUNTERS, MethodType.methodType(void.class));
+    private static final MethodHandle PUSHES = getter(COUNTERS, "pushes", long.class);
+    private static final MethodHandle DECREASE_KEYS = getter(COUNTERS, "decreaseKeys", long.class);
+    private static final MethodHandle STALE_POPS = getter(COUNTERS, "stalePops", long.class);
+    private static final MethodHandle BUILD_CONTRACTION = staticMethod(CONTRACTION, "build", CONTRACTION, GRAPH);
+    private static final MethodHandle NEW_ROUTER = constructor(ROUTER, MethodType.methodType(void.class, ENGINE));
+    private static final MethodHandle NEW_PUBLISHED = constructor(PUBLISHED, MethodType.methodType(void.class, GRAPH));
+    private static final MethodHandle PUBLISH = method(PUBLISHED, "publish", GRAPH);
+    private static final MethodHandle CURRENT = method(PUBLISHED, "current", GRAPH);
+    private static final MethodHandle NEW_WRITER = constructor(WRITER, MethodType.methodType(void.class, OutputStream.class, int.class));
+
+    private Programs()
+    {
+    }
+
+    static Object newGraph()
+    {
+        try
+        {
+            return NEW_GRAPH.invoke();
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static int addNode(Object graph, String name)
+    {
+        try
+        {
+            return (int) ADD_NODE.invoke(graph, name);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static void addLink(Object graph, int u, int v, int weight)
+    {
+        try
+        {
+            ADD_LINK.invoke(graph, u, v, weight);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static void removeLink(Object graph, int u, int v)
+    {
+        try
+        {
+            REMOVE_LINK.invoke(graph, u, v);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static int linkWeight(Object graph, int u, int v)
+    {
+        try
+        {
+            return (int) LINK_WEIGHT.invoke(graph, u, v);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static void compact(Object graph)
+    {
+        try
+        {
+            COMPACT.invoke(graph);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static int degree(Object graph, int u)
+    {
+        try
+        {
+            return (int) DEGREE.invoke(graph, u);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // The router at the other end of link i of router u
+    static int target(Object graph, int u, int i)
+    {
+        try
+        {
+            return (int) TARGET.invoke(graph, u, i);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static int weight(Object graph, int u, int i)
+    {
+        try
+        {
+            return (int) WEIGHT.invoke(graph, u, i);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // ShortestPathEngine with the given --engine name
+    static Object engine(String name)
+    {
+        try
+        {
+            return NAMED_ENGINE.invoke(name);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // Row of the source's routing table for the destination, from the engine's SPF stopped at the destination
+    static String[] route(Object engine, String source, String destination, Object graph)
+    {
+        try
+        {
+            return (String[]) ENGINE_ROUTE.invoke(engine, source, destination, graph);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // Routing table of the router from the engine, with what its SPF run did added to counters
+    static List<?> routingTable(Object engine, String router, Object graph, Object counters)
+    {
+        try
+        {
+            return (List<?>) COUNTED_TABLE.invoke(engine, router, graph, counters);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // ShortestPathEngine.Counters, all 0
+    static Object counters()
+    {
+        try
+        {
+            return NEW_COUNTERS.invoke();
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static long pushes(Object counters)
+    {
+        try
+        {
+            return (long) PUSHES.invoke(counters);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static long decreaseKeys(Object counters)
+    {
+        try
+        {
+            return (long) DECREASE_KEYS.invoke(counters);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    static long stalePops(Object counters)
+    {
+        try
+        {
+            return (long) STALE_POPS.invoke(counters);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // ContractionHierarchy of the graph, built from scratch
+    static Object contractionHierarchy(Object graph)
+    {
+        try
+        {
+            return BUILD_CONTRACTION.invoke(graph);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // PublishedTopology of the graph
+    static Object published(Object graph)
+    {
+        try
+        {
+            return NEW_PUBLISHED.invoke(graph);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // Publish the graph of a PublishedTopology as it is now
+    static Object publish(Object published)
+    {
+        try
+        {
+            return PUBLISH.invoke(published);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // The last published snapshot of a PublishedTopology
+    static Object current(Object published)
+    {
+        try
+        {
+            return CURRENT.invoke(published);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // Table writer that formats every row and throws the bytes away
+    static Object nullWriter()
+    {
+        try
+        {
+            return NEW_WRITER.invoke(OutputStream.nullOutputStream(), 1 << 16);
+        }
+        catch (Throwable e)
+        {
+            throw rethrow(e);
+        }
+    }
+
+    // The routing program running one ShortestPathEngine, picked by its --engine name, with the handles of its table methods
+    static final class Engine
+    {
+        private final Object program;
+        private final MethodHandle computeRoutingTable;
+        private final MethodHandle writeRoutingTable;
+        private final MethodHandle computeRoute;
+        private final MethodHandle computeLsDatabase;
+        private final MethodHandle printLsDatabase;
+        private final MethodHandle neighbourTable;
+        private final MethodHandle run;
+
+        Engine(String name)
+        {
+            try
+            {
+                program = NEW_ROUTER.invoke(NAMED_ENGINE.invoke(name));
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+            computeRoutingTable = method(ROUTER, "computeRoutingTable", List.class, String.class, GRAPH);
+            writeRoutingTable = method(ROUTER, "writeRoutingTable", void.class, String.class, GRAPH, WRITER);
+            computeRoute = method(ROUTER, "computeRoute", String[].class, String.class, String.class, GRAPH);
+            computeLsDatabase = method(ROUTER, "computeLsDatabase", NavigableSet.class, String.class, GRAPH);
+            printLsDatabase = method(ROUTER, "printLsDatabase", void.class, String.class, Collection.class, WRITER);
+            neighbourTable = method(ROUTER, "neighbourTable", void.class, String.class, GRAPH, WRITER);
+            run = method(ROUTER, "run", void.class, String[].class, String.class);
+        }
+
+        // A whole run of the program over the input named in args, as its main() does. A program runs only once.
+        void run(String[] args, String topologyFile)
+        {
+            try
+            {
+                run.invoke(program, args, topologyFile);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        List<?> computeRoutingTable(String router, Object graph)
+        {
+            try
+            {
+                return (List<?>) computeRoutingTable.invoke(program, router, graph);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        void writeRoutingTable(String router, Object graph, Object out)
+        {
+            try
+            {
+                writeRoutingTable.invoke(program, router, graph, out);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        String[] computeRoute(String source, String destination, Object graph)
+        {
+            try
+            {
+                return (String[]) computeRoute.invoke(program, source, destination, graph);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        Collection<?> computeLsDatabase(String router, Object graph)
+        {
+            try
+            {
+                return (Collection<?>) computeLsDatabase.invoke(program, router, graph);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        void printLsDatabase(String router, Collection<?> links, Object out)
+        {
+            try
+            {
+                printLsDatabase.invoke(program, router, links, out);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        void neighbourTable(String router, Object graph, Object out)
+        {
+            try
+            {
+                neighbourTable.invoke(program, router, graph, out);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // The RouteHierarchy of --hierarchy over a graph, which follows the graph's changes from then on
+    static final class Hierarchy
+    {
+        private static final MethodHandle NEW_HIERARCHY = constructor(HIERARCHY, MethodType.methodType(void.class, GRAPH));
+        private static final MethodHandle ROUTE = method(HIERARCHY, "route", String[].class, String.class, String.class);
+        private static final MethodHandle STATISTICS = method(HIERARCHY, "statistics", String.class);
+
+        private final Object hierarchy;
+
+        Hierarchy(Object graph)
+        {
+            try
+            {
+                hierarchy = NEW_HIERARCHY.invoke(graph);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        String[] route(String source, String destination)
+        {
+            try
+            {
+                return (String[]) ROUTE.invoke(hierarchy, source, destination);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        String statistics()
+        {
+            try
+            {
+                return (String) STATISTICS.invoke(hierarchy);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // The IncrementalSpf of --incremental over a graph, which repairs its kept trees on the graph's changes from then on
+    static final class Incremental
+    {
+        private static final MethodHandle NEW_INCREMENTAL = constructor(INCREMENTAL, MethodType.methodType(void.class, GRAPH));
+        private static final MethodHandle TREE_OF = method(INCREMENTAL, "tree", TREE, int.class);
+        private static final MethodHandle COMPUTE_TREE = method(INCREMENTAL, "computeTree", TREE, int.class);
+        private static final MethodHandle ROUTES = method(INCREMENTAL, "routes", List.class, int.class);
+        private static final MethodHandle FULL_RUNS = method(INCREMENTAL, "fullRuns", long.class);
+        private static final MethodHandle REPAIRS = method(INCREMENTAL, "repairs", long.class);
+        private static final MethodHandle TOUCHED_NODES = method(INCREMENTAL, "touchedNodes", long.class);
+
+        private final Object spf;
+
+        Incremental(Object graph)
+        {
+            try
+            {
+                spf = NEW_INCREMENTAL.invoke(graph);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        // The kept tree of the router, computed in full the first time
+        Object tree(int root)
+        {
+            try
+            {
+                return TREE_OF.invoke(spf, root);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        // A tree computed in full, which is not kept
+        Object computeTree(int root)
+        {
+            try
+            {
+                return COMPUTE_TREE.invoke(spf, root);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        // Routing table rows of the router from its kept tree
+        List<?> routes(int root)
+        {
+            try
+            {
+                return (List<?>) ROUTES.invoke(spf, root);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        String statistics()
+        {
+            try
+            {
+                return "Incremental SPF: " + (long) REPAIRS.invoke(spf) + " tree repairs, " + (long) TOUCHED_NODES.invoke(spf)
+                    + " routers re-settled by them, " + (long) FULL_RUNS.invoke(spf) + " full runs";
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // The RouterSimulation of --simulate over a graph, which floods the graph's changes from then on
+    static final class Simulation
+    {
+        private static final MethodHandle NEW_SIMULATION = constructor(SIMULATION, MethodType.methodType(void.class, GRAPH, ENGINE, int.class));
+        private static final MethodHandle CONVERGE = method(SIMULATION, "converge", long.class);
+        private static final MethodHandle SHUTDOWN = method(SIMULATION, "shutdown", void.class);
+        private static final MethodHandle STATISTICS = method(SIMULATION, "statistics", String.class);
+
+        private final Object simulation;
+
+        // engine is the ShortestPathEngine every router runs on its own LSDB, or null to only flood
+        Simulation(Object graph, Object engine, int threads)
+        {
+            try
+            {
+                simulation = NEW_SIMULATION.invoke(graph, engine, threads);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        long converge()
+        {
+            try
+            {
+                return (long) CONVERGE.invoke(simulation);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        void shutdown()
+        {
+            try
+            {
+                SHUTDOWN.invoke(simulation);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+
+        String statistics()
+        {
+            try
+            {
+                return (String) STATISTICS.invoke(simulation);
+            }
+            catch (Throwable e)
+            {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // Unchecked exceptions from the programs pass through as they are
+    private static RuntimeException rethrow(Throwable e)
+    {
+        if (e instanceof RuntimeException)
+        {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error)
+        {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    private static Class<?> load(String name)
+    {
+        try
+        {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("The routing programs are not on the class path: " + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type, MethodType signature)
+    {
+        try
+        {
+            return LOOKUP.findConstructor(type, signature);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> type, String name, Class<?> returnType, Class<?>... parameterTypes)
+    {
+        try
+        {
+            return LOOKUP.findStatic(type, name, MethodType.methodType(returnType, parameterTypes));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> type, String name, Class<?> returnType, Class<?>... parameterTypes)
+    {
+        try
+        {
+            return LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameterTypes));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> type, String name, Class<?> fieldType)
+    {
+        try
+        {
+            return LOOKUP.findGetter(type, name, fieldType);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
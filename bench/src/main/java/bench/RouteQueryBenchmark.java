@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Next hop and cost from one router to another: the bidirectional search of a QUERY line against the full routing
+// table of the source, which is what answering the same question took before.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class RouteQueryBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Routes extends Topology
+    {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int routers;
+
+        public Programs.Engine program;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            program = new Programs.Engine("indexed");
+        }
+    }
+
+    @Benchmark
+    public Object route(Routes routes)
+    {
+        return routes.program.computeRoute(routes.sample(), routes.sample(), routes.graph);
+    }
+
+    @Benchmark
+    public Object routingTable(Routes routes)
+    {
+        routes.sample();
+        return routes.program.computeRoutingTable(routes.sample(), routes.graph);
+    }
+}
@@ -0,0 +1,115 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Routing table of one router, computed by every ShortestPathEngine, which all print the same tables.
+// The default sizes stop at 10^5 routers, where one table of the O(n^2) linear engine already takes seconds. The other
+// engines also run at 10^6, e.g. with -p routers=1000000 -p engine=indexed,pairing,bucket.
+// writeRoutingTable writes the same table to a discarding TableWriter straight from the engine's SPF workspace, and
+// with -prof gc shows what an SPF run allocates once that workspace has grown to the topology.
+// countedRoutingTable computes the table with the engine's counters and reports the queue work of its SPF runs next
+// to its score, as totals over the iteration: tables, pushes, decreaseKeys (the pushes of routers already queued,
+// which the lazy queue turns into second entries) and stalePops (entries skipped for having one). Divided by tables
+// they are what one run saves on the heap, e.g. with -p engine=lazy,indexed.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class RoutingTableBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Routing extends Topology
+    {
+        @Param({"100", "1000", "10000", "100000"})
+        public int routers;
+
+        @Param({"linear", "lazy", "indexed", "pairing", "bucket"})
+        public String engine;
+
+        public Programs.Engine program;
+        // ShortestPathEngine
+        public Object spf;
+        // TableWriter
+        public Object out;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            program = new Programs.Engine(engine);
+            spf = Programs.engine(engine);
+            out = Programs.nullWriter();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class QueueWork
+    {
+        public long tables;
+        // ShortestPathEngine.Counters of the iteration
+        private Object counters;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            tables = 0;
+            counters = Programs.counters();
+        }
+
+        public long pushes()
+        {
+            return Programs.pushes(counters);
+        }
+
+        public long decreaseKeys()
+        {
+            return Programs.decreaseKeys(counters);
+        }
+
+        public long stalePops()
+        {
+            return Programs.stalePops(counters);
+        }
+    }
+
+    @Benchmark
+    public Object routingTable(Routing routing)
+    {
+        return routing.program.computeRoutingTable(routing.sample(), routing.graph);
+    }
+
+    @Benchmark
+    public Object countedRoutingTable(Routing routing, QueueWork work)
+    {
+        work.tables++;
+        return Programs.routingTable(routing.spf, routing.sample(), routing.graph, work.counters);
+    }
+
+    @Benchmark
+    public Object writeRoutingTable(Routing routing)
+    {
+        routing.program.writeRoutingTable(routing.sample(), routing.graph, routing.out);
+        return routing.out;
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// How fast the routers of --simulate learn topology changes, for capacity planning: one random link change flooded
+// until the network is quiet, and a burst of them flooded at once.
+//   spf  whether every router also runs SPF with the indexed engine on its own LSDB, as with --simulate=spf, which then
+//        counts towards convergence. Only flooding by default, since every router runs SPF many times per change:
+//        -p spf=true -p routers=1000 adds it at a size that finishes in minutes
+// The simulation runs on one thread per processor. Its statistics, with the convergence percentiles and the LSAs
+// received per second while flooding, are printed at the end of each trial. The changes are taken back after each
+// iteration, so every iteration starts from the same topology.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class SimulationBenchmark
+{
+    public static final int BURST = 20;
+
+    @State(Scope.Benchmark)
+    public static class Network extends Layout
+    {
+        @Param({"1000", "10000"})
+        public int routers;
+
+        @Param({"false"})
+        public boolean spf;
+
+        public Programs.Simulation simulation;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            simulation = new Programs.Simulation(graph, spf ? Programs.engine("indexed") : null, Runtime.getRuntime().availableProcessors());
+        }
+
+        @TearDown(Level.Iteration)
+        public void restore()
+        {
+            undo();
+            simulation.converge();
+        }
+
+        @TearDown(Level.Trial)
+        public void report()
+        {
+            System.out.println(simulation.statistics());
+            simulation.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long change(Network network)
+    {
+        network.change();
+        return network.simulation.converge();
+    }
+
+    @Benchmark
+    public long burst(Network network)
+    {
+        for (int k = 0; k < BURST; k++)
+        {
+            network.change();
+        }
+        return network.simulation.converge();
+    }
+}
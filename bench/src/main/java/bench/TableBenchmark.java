@@ -0,0 +1,65 @@
+package bench;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Neighbour table and LSDB of one router, formatted into a writer that drops the bytes.
+// Every engine shares these tables, so only the program with the indexed heap is measured.
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class TableBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class Tables extends Topology
+    {
+        @Param({"100", "1000", "10000", "100000", "1000000"})
+        public int routers;
+
+        public Programs.Engine engine;
+        // TableWriter
+        public Object out;
+
+        @Override
+        public int routers()
+        {
+            return routers;
+        }
+
+        @Override
+        protected void built()
+        {
+            engine = new Programs.Engine("indexed");
+            out = Programs.nullWriter();
+        }
+    }
+
+    @Benchmark
+    public Object neighbourTable(Tables tables)
+    {
+        tables.engine.neighbourTable(tables.sample(), tables.graph, tables.out);
+        return tables.out;
+    }
+
+    @Benchmark
+    public Object lsDatabase(Tables tables)
+    {
+        String router = tables.sample();
+        Collection<?> links = tables.engine.computeLsDatabase(router, tables.graph);
+        tables.engine.printLsDatabase(router, links, tables.out);
+        return links;
+    }
+}
@@ -0,0 +1,125 @@
+package bench;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Random connected topology, built once per trial from the benchmark parameters.
+//   routers  number of routers, declared by each subclass since the O(n^2) routing table does not reach 10^6 routers
+//   density  sparse gives every router 4 links on average. dense gives it n - 1 (a full mesh) as long as the topology
+//            stays within MAX_ARCS, and as many as fit within MAX_ARCS above that
+//   weights  uniform makes every link weight 1, so ties between equal paths are everywhere; random draws them from 1..100
+// A random spanning tree is laid first so that every router is reachable, and random links are added on top.
+@State(Scope.Benchmark)
+public abstract class Topology
+{
+    public static final int SPARSE_DEGREE = 4;
+    // Arcs of the largest dense topology, which keeps a 10^4 router mesh within a few hundred MB
+    public static final long MAX_ARCS = 4000000L;
+    // Routers whose tables are asked for, taken in turn so that no single router is measured
+    public static final int SAMPLES = 64;
+
+    @Param({"sparse", "dense"})
+    public String density;
+
+    @Param({"uniform", "random"})
+    public String weights;
+
+    // CsrGraph
+    public Object graph;
+    public String[] names;
+    public String[] samples;
+    private int next;
+
+    public abstract int routers();
+
+    @Setup(Level.Trial)
+    public void build()
+    {
+        int routers = routers();
+        Random random = new Random(routers * 31L + density.hashCode() * 7L + weights.hashCode());
+        graph = Programs.newGraph();
+        names = new String[routers];
+        for (int u = 0; u < routers; u++)
+        {
+            names[u] = "R" + u;
+            Programs.addNode(graph, names[u]);
+        }
+
+        int degree = averageDegree(routers);
+        long links = (long) routers * degree / 2;
+        long added = 0;
+        for (int u = 1; u < routers; u++)
+        {
+            Programs.addLink(graph, u, random.nextInt(u), weight(random));
+            added++;
+        }
+        long pairs = (long) routers * (routers - 1) / 2;
+        if (links * 2 > pairs)
+        {
+            // Close to a full mesh, so go through every pair instead of drawing pairs that are mostly taken already.
+            double p = (double) (links - added) / (pairs - added);
+            for (int u = 0; u < routers; u++)
+            {
+                for (int v = u + 1; v < routers; v++)
+                {
+                    if (random.nextDouble() < p && Programs.linkWeight(graph, u, v) == -1)
+                    {
+                        Programs.addLink(graph, u, v, weight(random));
+                    }
+                }
+            }
+        }
+        else
+        {
+            while (added < links)
+            {
+                int u = random.nextInt(routers);
+                int v = random.nextInt(routers);
+                if (u != v && Programs.linkWeight(graph, u, v) == -1)
+                {
+                    Programs.addLink(graph, u, v, weight(random));
+                    added++;
+                }
+            }
+        }
+        Programs.compact(graph);
+
+        samples = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            samples[i] = names[random.nextInt(routers)];
+        }
+        built();
+    }
+
+    // Called at the end of build(), for the setup a benchmark needs on top of the topology
+    protected void built()
+    {
+    }
+
+    // The next router to ask for
+    public String sample()
+    {
+        next = (next + 1) & (SAMPLES - 1);
+        return samples[next];
+    }
+
+    private int averageDegree(int routers)
+    {
+        if (density.equals("sparse"))
+        {
+            return Math.min(routers - 1, SPARSE_DEGREE);
+        }
+        return (int) Math.max(SPARSE_DEGREE, Math.min(routers - 1, MAX_ARCS / routers));
+    }
+
+    private int weight(Random random)
+    {
+        return weights.equals("uniform") ? 1 : 1 + random.nextInt(100);
+    }
+}
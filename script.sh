@@ -50,8 +50,8 @@ do
     avg_time_n2=$(echo "scale=3; $total_time_n2 / 10" | bc)
     avg_time_nlogn=$(echo "scale=3; $total_time_nlogn / 10" | bc)
 
-    java TopologyExtractor graph_dijkstra.ser > topology_info.txt
-    java TopologyExtractor graph_dijkstra_nlogn.ser > topology_info_nlogn.txt
+    java TopologyExtractor graph_dijkstra.topo > topology_info.txt
+    java TopologyExtractor graph_dijkstra_nlogn.topo > topology_info_nlogn.txt
     nodes=$(grep "Final number of nodes: " topology_info.txt | awk '{print $5}')
     links=$(grep "Final number of edges: " topology_info.txt | awk '{print $5}')
 
@@ -75,5 +75,5 @@ done
 echo "Results for individual test cases saved to separate files"
 
 # Clean up temporary files
-rm -f topology_info.txt topology_info_nlogn.txt graph_dijkstra.ser graph_dijkstra_nlogn.ser *.class
+rm -f topology_info.txt topology_info_nlogn.txt graph_dijkstra.topo graph_dijkstra_nlogn.topo *.class
 